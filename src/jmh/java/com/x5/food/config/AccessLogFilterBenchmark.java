@@ -0,0 +1,85 @@
+package com.x5.food.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цена логирования на запрос в потоке обработки: без фильтра, прежний фильтр с копированием
+ * тела и синхронной записью и асинхронный access-лог. Логгеры настроены в src/jmh/resources/logback.xml.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccessLogFilterBenchmark {
+
+    private static final byte[] BODY = """
+            {"sku":"SKU_333931","name":"Organic Whole Milk 1 l","barcodes":["4006381333931","4006381333948"]}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"NONE", "LEGACY", "ACCESS_LOG"})
+    private String filter;
+
+    private Filter legacyFilter;
+    private AccessLogFilter accessLogFilter;
+    private MockHttpServletRequest request;
+
+    // Обработчик контроллера: статус, заголовки и JSON-тело
+    private final FilterChain controller = (request, response) -> {
+        MockHttpServletResponse res = (MockHttpServletResponse) response;
+        res.setStatus(200);
+        res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        res.setContentLength(BODY.length);
+        res.getOutputStream().write(BODY);
+    };
+
+    @Setup
+    public void setUp() {
+        legacyFilter = new LegacyRequestResponseLoggingFilter();
+        accessLogFilter = new AccessLogFilter(true, 65_536, 1.0, Duration.ofSeconds(1), 256,
+                Duration.ofMillis(1), new SimpleMeterRegistry());
+        accessLogFilter.start();
+
+        request = new MockHttpServletRequest("GET", "/api/barcode/4006381333931");
+        request.setRemoteAddr("10.0.0.15");
+        request.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+        request.addHeader(HttpHeaders.USER_AGENT, "Mozilla/5.0 (X11; Linux x86_64) load-test/1.0");
+        request.addHeader(HttpHeaders.HOST, "barcode-service:8080");
+        request.addHeader("X-Request-Id", "7f1c2b4e-5d1a-4c52-9a83-3f0e2d6b9c11");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        accessLogFilter.stop();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse doFilter() throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        switch (filter) {
+            case "LEGACY" -> legacyFilter.doFilter(request, response, controller);
+            case "ACCESS_LOG" -> accessLogFilter.doFilter(request, response, controller);
+            default -> controller.doFilter(request, response);
+        }
+        return response;
+    }
+}
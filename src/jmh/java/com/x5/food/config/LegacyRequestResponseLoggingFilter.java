@@ -5,19 +5,19 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.annotation.Order;
-import org.springframework.stereotype.Component;
 import org.springframework.web.util.ContentCachingRequestWrapper;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import java.io.IOException;
 import java.util.Collections;
 
-@Component
-@Order(1)
-public class RequestResponseLoggingFilter implements Filter {
+/**
+ * Прежний фильтр логирования запросов (до асинхронного access-лога) - точка отсчета
+ * в {@link AccessLogFilterBenchmark}. В приложении не используется.
+ */
+public class LegacyRequestResponseLoggingFilter implements Filter {
 
-    private static final Logger log = LoggerFactory.getLogger(RequestResponseLoggingFilter.class);
+    private static final Logger log = LoggerFactory.getLogger(LegacyRequestResponseLoggingFilter.class);
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
@@ -0,0 +1,63 @@
+package com.x5.food.controller.exception.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.x5.food.dto.ErrorResponse;
+import com.x5.food.exception.BadRequestException;
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import com.x5.food.exception.ResourceNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ответы об ошибках на частых путях: 404 неизвестного штрих-кода, 400 невалидного GTIN
+ * и 503 при недоступном OpenFoodFacts. Исключения создаются в бенчмарке - стек
+ * захватывается так же, как при реальном выбросе.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GlobalExceptionHandlerBenchmark {
+
+    private GlobalExceptionHandler handler;
+    private ObjectWriter errorWriter;
+
+    @Setup
+    public void setUp() {
+        handler = new GlobalExceptionHandler();
+        errorWriter = new ObjectMapper().registerModule(new JavaTimeModule()).writerFor(ErrorResponse.class);
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> notFound() {
+        return handler.handleResourceNotFound(new ResourceNotFoundException("Продукт с таким штрих-кодом не найден"));
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> badRequest() {
+        return handler.handleBadRequest(new BadRequestException(
+                "Некорректный штрих-код: ожидается EAN-8, UPC-A, EAN-13 или GTIN-14"));
+    }
+
+    @Benchmark
+    public ResponseEntity<ErrorResponse> upstreamUnavailable() {
+        return handler.handleExternalServiceUnavailable(new ExternalServiceUnavailableException(
+                "Внешний сервис временно недоступен, повторите запрос позже", null));
+    }
+
+    // Полный путь ответа 404: исключение, ErrorResponse и JSON-тело
+    @Benchmark
+    public byte[] notFoundSerialized() throws IOException {
+        return errorWriter.writeValueAsBytes(notFound().getBody());
+    }
+}
@@ -0,0 +1,95 @@
+package com.x5.food.dto;
+
+import com.x5.food.dto.projection.ProductProjection;
+import com.x5.food.entity.Barcode;
+import com.x5.food.entity.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка ответа из внешнего API (с канонизацией штрих-кода), из JPA-сущности и из native-проекции.
+ * Профилировщик gc показывает аллокации на ответ (gc.alloc.rate.norm); число запросов к БД
+ * (один против двух у сущности с ленивой коллекцией) проверяет ProductRepositoryTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProductResponseBenchmark {
+
+    // UPC-A приводится к EAN-13, EAN-13 уже канонический
+    @Param({"036000291452", "4006381333931"})
+    private String barcode;
+
+    @Param({"1", "5"})
+    private int barcodesPerProduct;
+
+    private OpenFoodFactsResponse externalResponse;
+    private Product product;
+    private ProductProjection projection;
+
+    @Setup
+    public void setUp() {
+        externalResponse = new OpenFoodFactsResponse(barcode, new OpenFoodFactsResponse.Product(
+                "Organic Whole Milk", "1 l", "Example Dairy", new OpenFoodFactsResponse.Nutriments(64.0)));
+
+        product = new Product();
+        product.setSku("SKU_333931");
+        product.setName("Organic Whole Milk 1 l");
+        Set<Barcode> barcodes = new LinkedHashSet<>();
+        for (int i = 0; i < barcodesPerProduct; i++) {
+            barcodes.add(new Barcode(String.valueOf(4006381333931L + i * 10L), product));
+        }
+        product.setBarcodes(barcodes);
+
+        String[] projectedBarcodes = barcodes.stream()
+                .map(Barcode::getBarcode)
+                .toArray(String[]::new);
+        projection = new ProductProjection() {
+            @Override
+            public String getSku() {
+                return "SKU_333931";
+            }
+
+            @Override
+            public String getName() {
+                return "Organic Whole Milk 1 l";
+            }
+
+            @Override
+            public String[] getBarcodes() {
+                return projectedBarcodes;
+            }
+
+            @Override
+            public Instant getFetchedAt() {
+                return Instant.EPOCH;
+            }
+        };
+    }
+
+    @Benchmark
+    public ProductResponse fromExternal() {
+        return ProductResponse.fromExternal(externalResponse, barcode);
+    }
+
+    @Benchmark
+    public ProductResponse fromEntity() {
+        return ProductResponse.fromEntity(product);
+    }
+
+    @Benchmark
+    public ProductResponse fromProjection() {
+        return ProductResponse.fromProjection(projection);
+    }
+}
@@ -0,0 +1,150 @@
+package com.x5.food.external;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.x5.food.dto.OpenFoodFactsResponse;
+import com.x5.food.dto.ProductResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson на пути ответа: сериализация ProductResponse и разбор ответа OpenFoodFacts
+ * целиком через ObjectMapper против потокового разбора только нужных полей.
+ * FULL - документ продукта со всеми полями, FIELDS - ответ на запрос с ?fields=.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OpenFoodFactsJsonBenchmark {
+
+    @Param({"FULL", "FIELDS"})
+    private String payload;
+
+    // Размер сетевого чанка, которыми тело приходит в потоковый разбор
+    @Param({"8192"})
+    private int chunkSize;
+
+    private ObjectMapper objectMapper;
+    private ObjectReader responseReader;
+    private ObjectWriter productWriter;
+    private ProductResponse product;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        responseReader = objectMapper.readerFor(OpenFoodFactsResponse.class);
+        productWriter = objectMapper.writerFor(ProductResponse.class);
+        product = new ProductResponse("SKU_333931", "Organic Whole Milk 1 l", List.of("4006381333931", "4006381333948"));
+        body = objectMapper.writeValueAsBytes("FULL".equals(payload) ? fullDocument() : fieldsDocument());
+    }
+
+    @Benchmark
+    public byte[] serializeProductResponse() throws IOException {
+        return productWriter.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public OpenFoodFactsResponse deserializeWithObjectMapper() throws IOException {
+        return responseReader.readValue(body);
+    }
+
+    @Benchmark
+    public OpenFoodFactsResponse deserializeStreaming() throws IOException {
+        try (OpenFoodFactsStreamingParser parser = new OpenFoodFactsStreamingParser(objectMapper.getFactory())) {
+            for (int offset = 0; offset < body.length; offset += chunkSize) {
+                ByteBuffer chunk = ByteBuffer.wrap(body, offset, Math.min(chunkSize, body.length - offset));
+                if (parser.feed(chunk)) {
+                    break;
+                }
+            }
+            return parser.finish();
+        }
+    }
+
+    private static Map<String, Object> fieldsDocument() {
+        Map<String, Object> product = new LinkedHashMap<>();
+        product.put("code", "4006381333931");
+        product.put("product_name", "Organic Whole Milk");
+        product.put("brands", "Example Dairy");
+        product.put("quantity", "1 l");
+        product.put("nutriments", Map.of("energy-kcal_100g", 64.0));
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("code", "4006381333931");
+        document.put("product", product);
+        document.put("status", 1);
+        document.put("status_verbose", "product found");
+        return document;
+    }
+
+    // Приближение реального документа OpenFoodFacts: сотни полей, вложенные массивы и переводы
+    private static Map<String, Object> fullDocument() {
+        Map<String, Object> document = fieldsDocument();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> product = (Map<String, Object>) document.get("product");
+
+        Map<String, Object> nutriments = new LinkedHashMap<>();
+        for (String nutrient : List.of("energy", "fat", "saturated-fat", "carbohydrates", "sugars", "fiber",
+                "proteins", "salt", "sodium", "calcium", "vitamin-d", "energy-kcal")) {
+            nutriments.put(nutrient, 12.5);
+            nutriments.put(nutrient + "_100g", 12.5);
+            nutriments.put(nutrient + "_serving", 25.0);
+            nutriments.put(nutrient + "_unit", "g");
+            nutriments.put(nutrient + "_value", 12.5);
+        }
+        product.put("nutriments", nutriments);
+
+        List<Map<String, Object>> ingredients = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            Map<String, Object> ingredient = new LinkedHashMap<>();
+            ingredient.put("id", "en:ingredient-" + i);
+            ingredient.put("text", "Ingredient " + i);
+            ingredient.put("percent_estimate", 100.0 / (i + 1));
+            ingredient.put("vegan", "yes");
+            ingredient.put("vegetarian", "yes");
+            ingredient.put("from_palm_oil", "no");
+            ingredients.add(ingredient);
+        }
+        product.put("ingredients", ingredients);
+
+        Map<String, Object> images = new LinkedHashMap<>();
+        for (String language : List.of("en", "fr", "de", "ru", "es", "it")) {
+            for (String kind : List.of("front", "ingredients", "nutrition", "packaging")) {
+                images.put(kind + "_" + language, Map.of(
+                        "imgid", "12", "rev", "34", "angle", 0, "geometry", "0x0-0-0",
+                        "sizes", Map.of("100", Map.of("h", 100, "w", 75), "400", Map.of("h", 400, "w", 300),
+                                "full", Map.of("h", 2000, "w", 1500))));
+            }
+            product.put("product_name_" + language, "Organic Whole Milk (" + language + ")");
+            product.put("ingredients_text_" + language, "Milk, vitamin D3. ".repeat(20));
+        }
+        product.put("images", images);
+
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            tags.add("en:category-tag-" + i);
+        }
+        for (String field : List.of("categories_tags", "labels_tags", "countries_tags", "stores_tags",
+                "allergens_tags", "additives_tags", "states_tags", "ingredients_analysis_tags")) {
+            product.put(field, tags);
+        }
+        return document;
+    }
+}
@@ -0,0 +1,87 @@
+package com.x5.food.loadtest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Вселенная штрих-кодов прогона: ключ -> валидный EAN-13 и где он "живет" - в БД,
+ * только в OpenFoodFacts или нигде. Распределение детерминировано, не зависит от ранга популярности.
+ */
+final class BarcodeCatalog {
+
+    private static final long BASE = 200_000_000_000L;
+    private static final int BATCH_SIZE = 1_000;
+
+    private final int keys;
+    private final int dbPercent;
+    private final int upstreamKnownPercent;
+
+    BarcodeCatalog(int keys, int dbPercent, int upstreamKnownPercent) {
+        this.keys = keys;
+        this.dbPercent = dbPercent;
+        this.upstreamKnownPercent = upstreamKnownPercent;
+    }
+
+    // Префикс 2 - внутренний диапазон GS1, реальных товаров не задевает
+    static String barcode(int key) {
+        String base = String.valueOf(BASE + key);
+        int sum = 0;
+        for (int i = 0; i < base.length(); i++) {
+            int digit = base.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        return base + (10 - sum % 10) % 10;
+    }
+
+    static int key(String barcode) {
+        return (int) (Long.parseLong(barcode.substring(0, 12)) - BASE);
+    }
+
+    boolean inDatabase(int key) {
+        return bucket(key, 0x9E3779B9) < dbPercent;
+    }
+
+    boolean knownUpstream(int key) {
+        return bucket(key, 0x85EBCA6B) < upstreamKnownPercent;
+    }
+
+    int size() {
+        return keys;
+    }
+
+    int seed(Connection connection) throws SQLException {
+        connection.setAutoCommit(false);
+        int seeded = 0;
+        try (PreparedStatement product = connection.prepareStatement("insert into public.product (sku, name) values (?, ?)");
+             PreparedStatement barcode = connection.prepareStatement("insert into public.barcode (barcode, sku) values (?, ?)")) {
+            for (int key = 0; key < keys; key++) {
+                if (!inDatabase(key)) {
+                    continue;
+                }
+                String sku = "SKU_LT_" + key;
+                product.setString(1, sku);
+                product.setString(2, "Load test product " + key);
+                product.addBatch();
+                barcode.setString(1, barcode(key));
+                barcode.setString(2, sku);
+                barcode.addBatch();
+
+                if (++seeded % BATCH_SIZE == 0) {
+                    product.executeBatch();
+                    barcode.executeBatch();
+                }
+            }
+            product.executeBatch();
+            barcode.executeBatch();
+        }
+        connection.commit();
+        return seeded;
+    }
+
+    private static int bucket(int key, int salt) {
+        int hash = key * salt;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, 100);
+    }
+}
@@ -0,0 +1,117 @@
+package com.x5.food.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Задержки по исходу запроса в HdrHistogram: точные p99/p999 без хранения всех замеров.
+ */
+final class LatencyReport {
+
+    enum Outcome {
+        DB_OR_CACHE, EXTERNAL_CREATED, NOT_FOUND, UPSTREAM_ERROR, BAD_REQUEST, SERVER_ERROR, IO_ERROR;
+
+        static Outcome of(int status) {
+            return switch (status) {
+                case 200 -> DB_OR_CACHE;
+                case 201 -> EXTERNAL_CREATED;
+                case 404 -> NOT_FOUND;
+                case 503 -> UPSTREAM_ERROR;
+                case 400 -> BAD_REQUEST;
+                default -> SERVER_ERROR;
+            };
+        }
+    }
+
+    // До минуты с 3 значащими цифрами
+    private static final long MAX_LATENCY_MICROS = Duration.ofMinutes(1).toNanos() / 1_000;
+
+    private final Map<Outcome, Histogram> histograms = new EnumMap<>(Outcome.class);
+
+    LatencyReport() {
+        for (Outcome outcome : Outcome.values()) {
+            histograms.put(outcome, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+        }
+    }
+
+    void record(Outcome outcome, long latencyNanos) {
+        histograms.get(outcome).recordValue(Math.min(MAX_LATENCY_MICROS, Math.max(1, latencyNanos / 1_000)));
+    }
+
+    void reset() {
+        histograms.values().forEach(Histogram::reset);
+    }
+
+    Map<String, Object> summarize(LoadTestConfig config, Duration measured) {
+        double seconds = measured.toNanos() / 1e9;
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+
+        Map<String, Object> outcomes = new LinkedHashMap<>();
+        histograms.forEach((outcome, histogram) -> {
+            if (histogram.getTotalCount() > 0) {
+                outcomes.put(outcome.name().toLowerCase(), row(histogram, seconds));
+                total.add(histogram);
+            }
+        });
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("mode", config.mode().name().toLowerCase());
+        summary.put("threads", threads(config));
+        summary.put("concurrency", config.concurrency());
+        summary.put("targetRate", config.rate());
+        summary.put("durationSeconds", seconds);
+        summary.put("total", row(total, seconds));
+        summary.put("outcomes", outcomes);
+        return summary;
+    }
+
+    void print(Map<String, Object> summary) {
+        System.out.printf("%n%-18s %10s %10s %10s %10s %10s %10s%n",
+                "outcome", "count", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> outcomes = (Map<String, Map<String, Object>>) summary.get("outcomes");
+        outcomes.forEach(this::printRow);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> total = (Map<String, Object>) summary.get("total");
+        printRow("total", total);
+    }
+
+    Path write(Map<String, Object> summary, String reportDir) throws IOException {
+        Path directory = Files.createDirectories(Path.of(reportDir));
+        // Режим потоков в имени: отчеты platform и virtual лежат рядом для сравнения
+        Path file = directory.resolve("load-test-" + summary.get("mode") + "-" + summary.get("threads") + ".json");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), summary);
+        return file;
+    }
+
+    static String threads(LoadTestConfig config) {
+        return config.virtualThreads() ? "virtual" : "platform";
+    }
+
+    private void printRow(String name, Map<String, Object> row) {
+        System.out.printf("%-18s %10d %10.1f %10.2f %10.2f %10.2f %10.2f%n", name,
+                row.get("count"), row.get("throughput"), row.get("p50Ms"), row.get("p99Ms"),
+                row.get("p999Ms"), row.get("maxMs"));
+    }
+
+    private static Map<String, Object> row(Histogram histogram, double seconds) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("count", histogram.getTotalCount());
+        row.put("throughput", seconds > 0 ? histogram.getTotalCount() / seconds : 0.0);
+        row.put("p50Ms", histogram.getValueAtPercentile(50) / 1_000.0);
+        row.put("p99Ms", histogram.getValueAtPercentile(99) / 1_000.0);
+        row.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1_000.0);
+        row.put("maxMs", histogram.getMaxValue() / 1_000.0);
+        return row;
+    }
+}
@@ -0,0 +1,123 @@
+package com.x5.food.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор GET /api/barcode/{barcode} на виртуальных потоках.
+ * CLOSED - concurrency клиентов без пауз, показывает предельную пропускную способность.
+ * OPEN - пуассоновский поток с частотой rate; задержка считается от запланированного
+ * момента отправки, поэтому очередь перед сервисом не прячется (coordinated omission).
+ */
+final class LoadGenerator implements AutoCloseable {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestConfig config;
+    private final String baseUrl;
+    private final ZipfSampler sampler;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client;
+    private final LongAdder skipped = new LongAdder();
+
+    LoadGenerator(LoadTestConfig config, String baseUrl, ZipfSampler sampler) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.sampler = sampler;
+        this.client = HttpClient.newBuilder()
+                .executor(executor)
+                // Без попытки h2c upgrade на каждом новом соединении
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    void run(Duration duration, LatencyReport report) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        if (config.mode() == LoadTestConfig.Mode.CLOSED) {
+            runClosed(deadline, report);
+        } else {
+            runOpen(deadline, report);
+        }
+    }
+
+    // Запросы, не отправленные в OPEN-режиме из-за лимита maxInFlight
+    long skipped() {
+        return skipped.sum();
+    }
+
+    private void runClosed(long deadline, LatencyReport report) throws InterruptedException {
+        List<Thread> workers = new ArrayList<>(config.concurrency());
+        for (int i = 0; i < config.concurrency(); i++) {
+            workers.add(Thread.ofVirtual().name("load-client-", i).start(() -> {
+                while (System.nanoTime() < deadline) {
+                    send(System.nanoTime(), report);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    private void runOpen(long deadline, LatencyReport report) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        double meanGapNanos = 1e9 / config.rate();
+        long intended = System.nanoTime();
+
+        while (intended < deadline) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.tryAcquire()) {
+                long scheduledAt = intended;
+                executor.execute(() -> {
+                    try {
+                        send(scheduledAt, report);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } else {
+                skipped.increment();
+            }
+            // Экспоненциальные интервалы - пуассоновский поток запросов
+            intended += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanGapNanos);
+        }
+        inFlight.acquire(config.maxInFlight());
+    }
+
+    private void send(long scheduledAt, LatencyReport report) {
+        String barcode = BarcodeCatalog.barcode(sampler.next());
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/barcode/" + barcode))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            report.record(LatencyReport.Outcome.of(response.statusCode()), System.nanoTime() - scheduledAt);
+        } catch (IOException e) {
+            report.record(LatencyReport.Outcome.IO_ERROR, System.nanoTime() - scheduledAt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
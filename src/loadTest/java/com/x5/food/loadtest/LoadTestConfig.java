@@ -0,0 +1,60 @@
+package com.x5.food.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Параметры прогона из системных свойств loadTest.* (в Gradle: -PloadTest.rate=500).
+ */
+record LoadTestConfig(
+        Mode mode,
+        int concurrency,
+        double rate,
+        int maxInFlight,
+        Duration warmup,
+        Duration duration,
+        int keys,
+        double zipfExponent,
+        int dbPercent,
+        int upstreamKnownPercent,
+        Duration upstreamLatencyMedian,
+        Duration upstreamLatencyP99,
+        double upstreamErrorRate,
+        Duration throttleEvery,
+        Duration throttleFor,
+        // spring.threads.virtual.enabled приложения: прогоны с true и false сравнивают режимы потоков
+        boolean virtualThreads,
+        String reportDir
+) {
+
+    enum Mode {
+        // Фиксированное число клиентов, каждый ждет ответа перед следующим запросом
+        CLOSED,
+        // Запросы по расписанию с заданной частотой независимо от ответов
+        OPEN
+    }
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Mode.valueOf(property("mode", "closed").toUpperCase()),
+                Integer.parseInt(property("concurrency", "64")),
+                Double.parseDouble(property("rate", "500")),
+                Integer.parseInt(property("maxInFlight", "10000")),
+                Duration.parse(property("warmup", "PT20S")),
+                Duration.parse(property("duration", "PT1M")),
+                Integer.parseInt(property("keys", "100000")),
+                Double.parseDouble(property("zipfExponent", "1.1")),
+                Integer.parseInt(property("dbPercent", "70")),
+                Integer.parseInt(property("upstreamKnownPercent", "60")),
+                Duration.parse(property("upstreamLatencyMedian", "PT0.08S")),
+                Duration.parse(property("upstreamLatencyP99", "PT0.6S")),
+                Double.parseDouble(property("upstreamErrorRate", "0.02")),
+                Duration.parse(property("throttleEvery", "PT30S")),
+                Duration.parse(property("throttleFor", "PT2S")),
+                Boolean.parseBoolean(property("virtualThreads", "false")),
+                property("reportDir", "build/reports/load-test"));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadTest." + name, defaultValue);
+    }
+}
@@ -0,0 +1,105 @@
+package com.x5.food.loadtest;
+
+import com.x5.food.FoodApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Нагрузочный прогон: PostgreSQL в Testcontainers с предзаполненным каталогом, имитация
+ * OpenFoodFacts, приложение целиком в этом же процессе и генератор нагрузки.
+ * Итог - пропускная способность и p50/p99/p999 по исходам в консоли и в JSON.
+ * В режиме виртуальных потоков прогон падает, если за замер JFR записал закрепление
+ * виртуального потока (jdk.VirtualThreadPinned) дольше PINNED_THRESHOLD.
+ */
+public final class LoadTestRunner {
+
+    private static final Duration PINNED_THRESHOLD = Duration.ofMillis(5);
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        BarcodeCatalog catalog = new BarcodeCatalog(config.keys(), config.dbPercent(), config.upstreamKnownPercent());
+        ZipfSampler sampler = new ZipfSampler(config.keys(), config.zipfExponent());
+        System.out.printf("Load test: %s, keys=%d, top 1%% of keys get %.0f%% of requests%n",
+                config, config.keys(), sampler.share(config.keys() / 100) * 100);
+
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+                .withInitScript("schema.sql");
+             SimulatedUpstream upstream = new SimulatedUpstream(catalog, config)) {
+            postgres.start();
+            upstream.start();
+
+            try (Connection connection = DriverManager.getConnection(
+                    postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())) {
+                System.out.printf("Seeded %d products%n", catalog.seed(connection));
+            }
+
+            try (ConfigurableApplicationContext context = startApplication(postgres, upstream, config);
+                 LoadGenerator generator = new LoadGenerator(config, baseUrl(context), sampler);
+                 PinnedThreadMonitor pinned = new PinnedThreadMonitor(PINNED_THRESHOLD)) {
+                LatencyReport report = new LatencyReport();
+
+                // Прогрев JIT, пулов и кэшей - замеры отбрасываются
+                generator.run(config.warmup(), report);
+                report.reset();
+
+                pinned.start();
+                long startedAt = System.nanoTime();
+                generator.run(config.duration(), report);
+                Duration measured = Duration.ofNanos(System.nanoTime() - startedAt);
+                Map<String, Long> pinnedSites = pinned.stop(config.reportDir());
+
+                Map<String, Object> summary = report.summarize(config, measured);
+                summary.put("skipped", generator.skipped());
+                summary.put("pinnedEvents", pinnedSites.values().stream().mapToLong(Long::longValue).sum());
+                summary.put("pinnedSites", pinnedSites);
+                report.print(summary);
+                System.out.println(upstream.summary());
+                if (generator.skipped() > 0) {
+                    System.out.printf("Open loop skipped %d requests: maxInFlight=%d reached%n",
+                            generator.skipped(), config.maxInFlight());
+                }
+                Path file = report.write(summary, config.reportDir());
+                System.out.println("Report: " + file.toAbsolutePath());
+
+                if (config.virtualThreads() && !pinnedSites.isEmpty()) {
+                    pinnedSites.forEach((site, count) -> System.out.printf("Pinned %d times at %s%n", count, site));
+                    throw new IllegalStateException("Virtual threads were pinned during the run, see "
+                            + Path.of(config.reportDir(), "pinned-threads.jfr").toAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(PostgreSQLContainer<?> postgres,
+                                                                   SimulatedUpstream upstream,
+                                                                   LoadTestConfig config) {
+        return new SpringApplicationBuilder(FoodApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "spring.datasource.username=" + postgres.getUsername(),
+                        "spring.datasource.password=" + postgres.getPassword(),
+                        "external.api.url=" + upstream.apiUrl(),
+                        "spring.threads.virtual.enabled=" + config.virtualThreads(),
+                        "logging.file.name=" + Path.of(config.reportDir(), "app.log"),
+                        "logging.access.file=" + Path.of(config.reportDir(), "access.log"),
+                        "spring.output.ansi.enabled=NEVER")
+                .run();
+    }
+
+    private static String baseUrl(ConfigurableApplicationContext context) {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return "http://localhost:" + port;
+    }
+}
@@ -0,0 +1,75 @@
+package com.x5.food.loadtest;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Запись JFR-событий jdk.VirtualThreadPinned за время замера: виртуальный поток
+ * заблокировался, удерживая монитор (synchronized в драйвере, пуле или нашем коде),
+ * и держал поток-носитель. Событие пишется со стеком - по верхнему кадру видно виновника.
+ */
+final class PinnedThreadMonitor implements AutoCloseable {
+
+    static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final Recording recording = new Recording();
+
+    PinnedThreadMonitor(Duration threshold) {
+        recording.enable(EVENT).withThreshold(threshold).withStackTrace();
+        recording.setToDisk(true);
+    }
+
+    void start() {
+        recording.start();
+    }
+
+    /**
+     * Останавливает запись и сохраняет ее в reportDir.
+     *
+     * @return число событий по месту закрепления (кадр вне JDK), от самых частых
+     */
+    Map<String, Long> stop(String reportDir) throws IOException {
+        recording.stop();
+        Path file = Files.createDirectories(Path.of(reportDir)).resolve("pinned-threads.jfr");
+        recording.dump(file);
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        return events.stream()
+                .filter(event -> EVENT.equals(event.getEventType().getName()))
+                .collect(Collectors.groupingBy(PinnedThreadMonitor::site, Collectors.counting()))
+                .entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    // Первый кадр вне java.*/jdk.* - код, который держал монитор
+    private static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .map(RecordedFrame::getMethod)
+                .filter(method -> !method.getType().getName().startsWith("java.")
+                        && !method.getType().getName().startsWith("jdk."))
+                .findFirst()
+                .map(method -> method.getType().getName() + "." + method.getName())
+                .orElse("jdk");
+    }
+
+    @Override
+    public void close() {
+        recording.close();
+    }
+}
@@ -0,0 +1,110 @@
+package com.x5.food.loadtest;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Имитация OpenFoodFacts на MockWebServer: задержка по логнормальному распределению
+ * (медиана и p99), доля 503 и периодические окна, в которых все запросы получают 429.
+ */
+final class SimulatedUpstream implements AutoCloseable {
+
+    // Квантиль 0.99 стандартного нормального распределения
+    private static final double Z_99 = 2.326;
+
+    private final MockWebServer server = new MockWebServer();
+    private final BarcodeCatalog catalog;
+    private final LoadTestConfig config;
+    private final double medianMillis;
+    private final double sigma;
+    private final long startedAt = System.nanoTime();
+
+    private final LongAdder found = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    SimulatedUpstream(BarcodeCatalog catalog, LoadTestConfig config) {
+        this.catalog = catalog;
+        this.config = config;
+        this.medianMillis = config.upstreamLatencyMedian().toNanos() / 1e6;
+        double p99Millis = config.upstreamLatencyP99().toNanos() / 1e6;
+        this.sigma = p99Millis > medianMillis ? Math.log(p99Millis / medianMillis) / Z_99 : 0;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    void start() throws IOException {
+        server.start();
+    }
+
+    // Базовый URL в формате external.api.url
+    String apiUrl() {
+        return server.url("/api/v2/product/").toString();
+    }
+
+    String summary() {
+        return String.format("upstream: found=%d, not_found=%d, 503=%d, 429=%d",
+                found.sum(), notFound.sum(), failed.sum(), throttled.sum());
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        if (throttling()) {
+            throttled.increment();
+            return new MockResponse().setResponseCode(429).setHeader("Retry-After", "1");
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        if (random.nextDouble() < config.upstreamErrorRate()) {
+            failed.increment();
+            return new MockResponse().setResponseCode(503).setHeadersDelay(latency, TimeUnit.MILLISECONDS);
+        }
+
+        String path = request.getRequestUrl().encodedPath();
+        String barcode = path.substring(path.lastIndexOf('/') + 1);
+        int key = BarcodeCatalog.key(barcode);
+        if (!catalog.knownUpstream(key)) {
+            notFound.increment();
+            return new MockResponse()
+                    .setResponseCode(404)
+                    .setHeader("Content-Type", "application/json")
+                    .setBody("{\"code\":\"" + barcode + "\",\"status\":0,\"status_verbose\":\"product not found\"}")
+                    .setHeadersDelay(latency, TimeUnit.MILLISECONDS);
+        }
+
+        found.increment();
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("""
+                        {"code":"%s","product":{"product_name":"Upstream product %d","quantity":"500 g",\
+                        "brands":"Load Test","nutriments":{"energy-kcal_100g":250.0}},"status":1,\
+                        "status_verbose":"product found"}""".formatted(barcode, key))
+                .setHeadersDelay(latency, TimeUnit.MILLISECONDS);
+    }
+
+    private boolean throttling() {
+        long every = config.throttleEvery().toNanos();
+        if (every <= 0) {
+            return false;
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        return elapsed % every >= every - config.throttleFor().toNanos();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+}
@@ -0,0 +1,19 @@
+-- Схема, которую ожидает приложение (ddl-auto: validate); повторяет db/migration, чтобы засеять
+-- данные до старта приложения. Flyway примет ее за версию 1 и выполнит V2 без изменений
+create table public.product
+(
+    sku        varchar(255)  not null primary key,
+    name       varchar(1024) not null,
+    fetched_at timestamp with time zone
+);
+
+create table public.barcode
+(
+    barcode varchar(255) not null primary key,
+    sku     varchar(255) references public.product (sku)
+);
+
+create index barcode_sku_idx on public.barcode (sku);
+
+-- Фоновая перепроверка выбирает самые давно полученные продукты
+create index product_fetched_at_idx on public.product (fetched_at nulls first);
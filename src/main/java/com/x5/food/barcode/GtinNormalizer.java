@@ -0,0 +1,100 @@
+package com.x5.food.barcode;
+
+import com.x5.food.exception.BadRequestException;
+
+/**
+ * Проверка и приведение к каноническому виду штрих-кодов EAN-8, UPC-A, EAN-13 и GTIN-14.
+ * <p>
+ * Все форматы - это GTIN-14 с ведущими нулями, поэтому канонический вид выбирается по
+ * значению, а не по входной длине: кратчайшая из форм EAN-8 / EAN-13 / GTIN-14, в которую
+ * помещается значение. UPC-A "012345678905" и EAN-13 "0012345678905" дают один ключ.
+ * Проверка не выделяет память; уже канонический вход возвращается тем же экземпляром.
+ */
+public final class GtinNormalizer {
+
+    private static final int GTIN_LENGTH = 14;
+    private static final int EAN8_LEADING_ZEROS = GTIN_LENGTH - 8;
+    private static final int EAN13_LEADING_ZEROS = GTIN_LENGTH - 13;
+
+    private GtinNormalizer() {
+    }
+
+    /**
+     * @return канонический штрих-код или null, если формат или контрольная цифра неверны
+     */
+    public static String normalize(String barcode) {
+        if (barcode == null) {
+            return null;
+        }
+
+        int length = barcode.length();
+        if (length != 8 && length != 12 && length != 13 && length != GTIN_LENGTH) {
+            return null;
+        }
+
+        // Контрольная цифра GS1: веса 3 и 1 справа налево, начиная с цифры перед контрольной
+        int sum = 0;
+        int leadingZeros = GTIN_LENGTH - length;
+        boolean leading = true;
+        for (int i = 0; i < length; i++) {
+            char c = barcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            int digit = c - '0';
+            if (leading) {
+                if (digit == 0) {
+                    leadingZeros++;
+                } else {
+                    leading = false;
+                }
+            }
+            if (i < length - 1) {
+                sum += ((length - 1 - i) % 2 == 1) ? digit * 3 : digit;
+            }
+        }
+
+        int checkDigit = (10 - sum % 10) % 10;
+        if (checkDigit != barcode.charAt(length - 1) - '0') {
+            return null;
+        }
+
+        int canonicalLength = canonicalLength(leadingZeros);
+        if (canonicalLength == length) {
+            return barcode;
+        }
+        if (canonicalLength < length) {
+            return barcode.substring(length - canonicalLength);
+        }
+        // UPC-A дополняется ведущим нулем до EAN-13
+        return "0".repeat(canonicalLength - length) + barcode;
+    }
+
+    public static boolean isValid(String barcode) {
+        return normalize(barcode) != null;
+    }
+
+    /**
+     * Проверка на входе API: неверный штрих-код отклоняется до кэша, БД и внешнего сервиса.
+     */
+    public static String requireCanonical(String barcode) {
+        if (barcode == null || barcode.isEmpty()) {
+            throw new BadRequestException("Штрих-код не может быть пустым");
+        }
+        String canonical = normalize(barcode);
+        if (canonical == null) {
+            throw new BadRequestException("Некорректный штрих-код: ожидается EAN-8, UPC-A, EAN-13 или GTIN-14");
+        }
+        return canonical;
+    }
+
+    private static int canonicalLength(int leadingZerosOfGtin14) {
+        if (leadingZerosOfGtin14 >= EAN8_LEADING_ZEROS) {
+            return 8;
+        }
+        if (leadingZerosOfGtin14 >= EAN13_LEADING_ZEROS) {
+            return 13;
+        }
+        return GTIN_LENGTH;
+    }
+}
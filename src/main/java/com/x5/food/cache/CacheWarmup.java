@@ -0,0 +1,87 @@
+package com.x5.food.cache;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ход прогрева кэша из снимка при старте. Пока прогрев не завершен, health-компонент
+ * cacheWarmup (и группа readiness) отвечает OUT_OF_SERVICE, а /health - 503.
+ */
+@Component
+public class CacheWarmup implements HealthIndicator {
+
+    public enum State {
+        PENDING,
+        LOADING,
+        READY
+    }
+
+    private final AtomicLong loaded = new AtomicLong();
+    private volatile long total;
+    private volatile State state = State.PENDING;
+    private volatile String source = "none";
+
+    void start(String source, long total) {
+        this.source = source;
+        this.total = total;
+        loaded.set(0);
+        state = State.LOADING;
+    }
+
+    void advance() {
+        loaded.incrementAndGet();
+    }
+
+    void finish() {
+        state = State.READY;
+    }
+
+    // Снимка нет или он не подходит - стартуем с холодным кэшем
+    void skip(String reason) {
+        source = reason;
+        state = State.READY;
+    }
+
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getLoaded() {
+        return loaded.get();
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public int getProgressPercent() {
+        if (state == State.READY) {
+            return 100;
+        }
+        long expected = total;
+        return expected > 0 ? (int) Math.min(100, loaded.get() * 100 / expected) : 0;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = isReady() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("state", state)
+                .withDetail("source", source)
+                .withDetail("loaded", loaded.get())
+                .withDetail("total", total)
+                .withDetail("progressPercent", getProgressPercent())
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.x5.food.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Кэш штрих-кодов, которых нет ни в БД, ни в OpenFoodFacts.
+ * Сюда попадает только подтвержденный "not found", временные сбои внешнего API не кэшируются.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NegativeLookupCache {
+
+    static final String CACHE_NAME = "negative-lookup";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.negative.max-size:50000}")
+    private long maxSize;
+
+    @Value("${cache.negative.ttl:30m}")
+    private Duration ttl;
+
+    private Cache<String, Boolean> cache;
+
+    @PostConstruct
+    void init() {
+        cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<String, Boolean>build(), CACHE_NAME);
+        log.info("Negative lookup cache initialized: maxSize={}, ttl={}", maxSize, ttl);
+    }
+
+    public boolean isKnownMissing(String barcode) {
+        return cache.getIfPresent(barcode) != null;
+    }
+
+    public void markMissing(String barcode) {
+        cache.put(barcode, Boolean.TRUE);
+    }
+
+    public void invalidate(String barcode) {
+        cache.invalidate(barcode);
+    }
+}
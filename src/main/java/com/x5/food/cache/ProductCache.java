@@ -0,0 +1,196 @@
+package com.x5.food.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.x5.food.dto.ProductResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш {@link ProductResponse} по штрих-коду.
+ * Счетчики hit/miss/eviction публикуются в actuator как метрики {@code cache.*{cache=product}}.
+ * Запись помнит, когда продукт был получен, - по этому времени работает refresh-ahead.
+ * Вторичный индекс SKU -> ключи кэша дает удаление записей SKU без обхода всего кэша;
+ * он меняется только внутри атомарных операций Caffeine над ключом.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductCache {
+
+    static final String CACHE_NAME = "product";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.product.max-size:10000}")
+    private long maxSize;
+
+    @Value("${cache.product.ttl:10m}")
+    private Duration ttl;
+
+    @Value("${cache.product.expiry-policy:AFTER_WRITE}")
+    private ExpiryPolicy expiryPolicy;
+
+    // Возраст данных (от получения из OpenFoodFacts), после которого запрошенная запись
+    // перепроверяется в фоне; 0 - без refresh-ahead
+    @Value("${cache.product.refresh-after:24h}")
+    private Duration refreshAfter;
+
+    private final ConcurrentMap<String, Set<String>> keysBySku = new ConcurrentHashMap<>();
+
+    private Cache<String, Entry> cache;
+
+    @PostConstruct
+    void init() {
+        // evictionListener вызывается синхронно внутри вытеснения - индекс не расходится с кэшем
+        Caffeine<String, Entry> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .evictionListener(this::onEviction);
+
+        switch (expiryPolicy) {
+            case AFTER_WRITE -> builder.expireAfterWrite(ttl);
+            case AFTER_ACCESS -> builder.expireAfterAccess(ttl);
+        }
+
+        cache = CaffeineCacheMetrics.monitor(meterRegistry, builder.build(), CACHE_NAME);
+        log.info("Product cache initialized: maxSize={}, ttl={}, policy={}, refreshAfter={}",
+                maxSize, ttl, expiryPolicy, refreshAfter);
+    }
+
+    public Optional<ProductResponse> get(String barcode) {
+        return Optional.ofNullable(cache.getIfPresent(barcode)).map(Entry::product);
+    }
+
+    public void put(String barcode, ProductResponse product) {
+        put(barcode, product, Instant.now());
+    }
+
+    public void put(String barcode, ProductResponse product, Instant fetchedAt) {
+        cache.asMap().compute(barcode, (key, previous) -> index(key, previous, new Entry(product, fetchedAt)));
+    }
+
+    /**
+     * Заменяет запись, только если она еще в кэше: штрих-код, удаленный или вытесненный
+     * за время фоновой перепроверки, не возвращается.
+     */
+    public void replace(String barcode, ProductResponse product) {
+        cache.asMap().computeIfPresent(barcode, (key, previous) -> index(key, previous, new Entry(product, Instant.now())));
+    }
+
+    /**
+     * @return true, если запись есть и получена не позже refresh-after назад:
+     * ее пора перепроверить, пока она еще отдается из кэша
+     */
+    public boolean isDueForRefresh(String barcode) {
+        if (refreshAfter.isZero()) {
+            return false;
+        }
+        // Через asMap - без учета в статистике hit/miss
+        Entry entry = cache.asMap().get(barcode);
+        return entry != null && entry.fetchedAt().plus(refreshAfter).isBefore(Instant.now());
+    }
+
+    /**
+     * Удаляет все записи указанного SKU (после upsert или удаления штрих-кода меняются
+     * имя и список штрих-кодов) - по вторичному индексу, за O(записей SKU).
+     */
+    public void evictSku(String sku) {
+        Set<String> keys = keysBySku.get(sku);
+        if (keys == null) {
+            return;
+        }
+        for (String key : List.copyOf(keys)) {
+            cache.asMap().computeIfPresent(key, (barcode, entry) -> {
+                if (!sku.equals(entry.product().sku())) {
+                    return entry;
+                }
+                unindex(barcode, entry);
+                return null;
+            });
+        }
+    }
+
+    public void evictSkus(Set<String> skus) {
+        skus.forEach(this::evictSku);
+    }
+
+    /**
+     * До limit самых востребованных записей по оценке частоты W-TinyLFU, от самой горячей.
+     */
+    public Map<String, Entry> hottest(int limit) {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.hottest(limit))
+                .orElseGet(Map::of);
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    // Завершает отложенные вытеснения - для проверки индекса в тестах
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    Set<String> indexedKeys(String sku) {
+        return keysBySku.getOrDefault(sku, Set.of());
+    }
+
+    private Entry index(String barcode, Entry previous, Entry entry) {
+        if (previous != null) {
+            unindex(barcode, previous);
+        }
+        String sku = entry.product().sku();
+        if (sku != null) {
+            keysBySku.compute(sku, (key, keys) -> {
+                Set<String> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                result.add(barcode);
+                return result;
+            });
+        }
+        return entry;
+    }
+
+    private void unindex(String barcode, Entry entry) {
+        String sku = entry.product().sku();
+        if (sku != null) {
+            keysBySku.computeIfPresent(sku, (key, keys) -> {
+                keys.remove(barcode);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    private void onEviction(String barcode, Entry entry, RemovalCause cause) {
+        if (barcode != null && entry != null) {
+            unindex(barcode, entry);
+        }
+    }
+
+    public record Entry(
+            ProductResponse product,
+            Instant fetchedAt
+    ) {
+    }
+
+    public enum ExpiryPolicy {
+        AFTER_WRITE,
+        AFTER_ACCESS
+    }
+}
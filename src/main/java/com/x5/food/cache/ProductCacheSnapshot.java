@@ -0,0 +1,274 @@
+package com.x5.food.cache;
+
+import com.x5.food.dto.ProductResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.RecordComponent;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Снимок горячих записей {@link ProductCache} на локальном диске для теплого рестарта.
+ * Пишется периодически и при остановке, читается через mmap при старте до перехода
+ * в readiness (ApplicationRunner выполняется раньше ACCEPTING_TRAFFIC), ход загрузки - в {@link CacheWarmup}.
+ * <p>
+ * Формат: magic, версия формата, отпечаток схемы {@link ProductResponse}, версия сборки,
+ * время создания, число записей, записи (время получения продукта, строки - длина и UTF-8),
+ * CRC32 всего предыдущего.
+ * Снимок другой версии формата или схемы, устаревший или поврежденный - пропускается.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductCacheSnapshot implements ApplicationRunner {
+
+    static final int MAGIC = 0x42435300; // "BCS\0"
+    static final int FORMAT_VERSION = 2;
+    static final long SCHEMA = schemaFingerprint();
+
+    private final ProductCache productCache;
+    private final CacheWarmup cacheWarmup;
+    private final ObjectProvider<BuildProperties> buildProperties;
+
+    @Value("${cache.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.snapshot.file:cache/product-cache.snapshot}")
+    private String file;
+
+    @Value("${cache.snapshot.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${cache.snapshot.max-age:1h}")
+    private Duration maxAge;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        load();
+    }
+
+    void load() {
+        Path path = Path.of(file);
+        if (!enabled) {
+            cacheWarmup.skip("disabled");
+            return;
+        }
+        if (!Files.isRegularFile(path)) {
+            cacheWarmup.skip("no snapshot");
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Header header = readHeader(buffer);
+
+            String rejection = reject(header);
+            if (rejection != null) {
+                log.info("Ignoring product cache snapshot {}: {}", path, rejection);
+                cacheWarmup.skip(rejection);
+                return;
+            }
+
+            cacheWarmup.start("snapshot " + header.build(), header.count());
+            readEntries(buffer, header, (barcode, entry) -> {
+                productCache.put(barcode, entry.product(), entry.fetchedAt());
+                cacheWarmup.advance();
+            });
+            log.info("Product cache warmed up from snapshot {} in {} ms: entries={}, build={}, age={}s",
+                    path, (System.nanoTime() - startedAt) / 1_000_000, header.count(), header.build(),
+                    Duration.between(header.createdAt(), Instant.now()).toSeconds());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot load product cache snapshot {}, starting cold", path, e);
+        } finally {
+            cacheWarmup.finish();
+        }
+    }
+
+    /**
+     * Не пишет, пока идет прогрев: неполный кэш затер бы предыдущий снимок.
+     */
+    @Scheduled(fixedDelayString = "${cache.snapshot.interval:PT5M}",
+            initialDelayString = "${cache.snapshot.interval:PT5M}")
+    public synchronized void save() {
+        if (!enabled || !cacheWarmup.isReady()) {
+            return;
+        }
+
+        Map<String, ProductCache.Entry> hottest = productCache.hottest(maxEntries);
+        if (hottest.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        Path path = Path.of(file);
+        try {
+            // От холодных к горячим: при загрузке самые востребованные вставляются последними
+            List<Map.Entry<String, ProductCache.Entry>> entries = new ArrayList<>(hottest.entrySet()).reversed();
+            write(path, entries, buildVersion(), Instant.now());
+            log.info("Product cache snapshot written to {} in {} ms: entries={}",
+                    path, (System.nanoTime() - startedAt) / 1_000_000, entries.size());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot write product cache snapshot {}", path, e);
+        }
+    }
+
+    @PreDestroy
+    void saveOnShutdown() {
+        save();
+    }
+
+    // Запись во временный файл и атомарная замена: прерывание не оставит битый снимок
+    static void write(Path path, List<Map.Entry<String, ProductCache.Entry>> entries, String build, Instant createdAt)
+            throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(
+                new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(SCHEMA);
+            writeString(out, build);
+            out.writeLong(createdAt.toEpochMilli());
+            out.writeInt(entries.size());
+
+            for (Map.Entry<String, ProductCache.Entry> entry : entries) {
+                ProductResponse product = entry.getValue().product();
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().fetchedAt().toEpochMilli());
+                writeString(out, product.sku());
+                writeString(out, product.name());
+                out.writeInt(product.barcodes().size());
+                for (String barcode : product.barcodes()) {
+                    writeString(out, barcode);
+                }
+            }
+            out.writeLong(crc.getValue());
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Header readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < Integer.BYTES * 2 + Long.BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a product cache snapshot");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, buffer.limit() - Long.BYTES));
+        if (crc.getValue() != buffer.getLong(buffer.limit() - Long.BYTES)) {
+            throw new IOException("Product cache snapshot checksum mismatch");
+        }
+
+        buffer.position(Integer.BYTES);
+        return new Header(buffer.getInt(), buffer.getLong(), readString(buffer),
+                Instant.ofEpochMilli(buffer.getLong()), buffer.getInt());
+    }
+
+    static void readEntries(ByteBuffer buffer, Header header, BiConsumer<String, ProductCache.Entry> consumer) {
+        for (int i = 0; i < header.count(); i++) {
+            String barcode = readString(buffer);
+            Instant fetchedAt = Instant.ofEpochMilli(buffer.getLong());
+            String sku = readString(buffer);
+            String name = readString(buffer);
+            int barcodeCount = buffer.getInt();
+            List<String> barcodes = new ArrayList<>(barcodeCount);
+            for (int j = 0; j < barcodeCount; j++) {
+                barcodes.add(readString(buffer));
+            }
+            ProductResponse product = new ProductResponse(sku, name, List.copyOf(barcodes));
+            consumer.accept(barcode, new ProductCache.Entry(product, fetchedAt));
+        }
+    }
+
+    private String reject(Header header) {
+        if (header.formatVersion() != FORMAT_VERSION) {
+            return "format version " + header.formatVersion() + ", expected " + FORMAT_VERSION;
+        }
+        if (header.schema() != SCHEMA) {
+            return "incompatible schema from build " + header.build();
+        }
+        if (header.createdAt().plus(maxAge).isBefore(Instant.now())) {
+            return "older than " + maxAge;
+        }
+        return null;
+    }
+
+    private String buildVersion() {
+        BuildProperties properties = buildProperties.getIfAvailable();
+        return properties != null ? properties.getVersion() : "unknown";
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Меняется при изменении полей ProductResponse - снимок старой сборки не будет прочитан неверно
+    private static long schemaFingerprint() {
+        long hash = FORMAT_VERSION;
+        for (RecordComponent component : ProductResponse.class.getRecordComponents()) {
+            String signature = component.getName() + ':' + component.getGenericType().getTypeName();
+            hash = 31 * hash + signature.hashCode();
+        }
+        return hash;
+    }
+
+    record Header(
+            int formatVersion,
+            long schema,
+            String build,
+            Instant createdAt,
+            int count
+    ) {
+    }
+}
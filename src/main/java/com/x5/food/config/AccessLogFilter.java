@@ -0,0 +1,217 @@
+package com.x5.food.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static net.logstash.logback.argument.StructuredArguments.keyValue;
+
+/**
+ * Access-лог без копирования тел запроса и ответа. В потоке запроса только заполняется
+ * слот кольцевого буфера, форматирование и запись делает фоновый поток через логгер
+ * "access" (асинхронный JSON-аппендер в logback-spring.xml). Успешные быстрые запросы
+ * можно сэмплировать, ошибки и медленные запросы пишутся всегда.
+ */
+@Slf4j
+@Component
+@Order(1)
+public class AccessLogFilter implements Filter {
+
+    private static final Logger accessLog = LoggerFactory.getLogger("access");
+
+    private final AccessLogRingBuffer buffer;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final int drainBatchSize;
+    private final long drainIntervalNanos;
+    private final Counter droppedCounter;
+
+    private Thread drainer;
+    private volatile boolean running;
+
+    public AccessLogFilter(@Value("${logging.access.enabled:true}") boolean enabled,
+                           @Value("${logging.access.buffer-size:8192}") int bufferSize,
+                           @Value("${logging.access.sample-rate:1.0}") double sampleRate,
+                           @Value("${logging.access.slow-threshold:1s}") Duration slowThreshold,
+                           @Value("${logging.access.drain-batch-size:256}") int drainBatchSize,
+                           @Value("${logging.access.drain-interval:10ms}") Duration drainInterval,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.buffer = new AccessLogRingBuffer(bufferSize);
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.drainBatchSize = drainBatchSize;
+        this.drainIntervalNanos = drainInterval.toNanos();
+        this.droppedCounter = Counter.builder("access.log.dropped")
+                .description("Access log records dropped because the ring buffer was full")
+                .register(meterRegistry);
+        Gauge.builder("access.log.buffer.used", buffer, AccessLogRingBuffer::size)
+                .description("Access log records waiting to be written")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        drainer = Thread.ofPlatform().daemon(true).name("access-log-drainer").start(this::run);
+        log.info("Access log started: buffer={}, sampleRate={}", buffer.capacity(), sampleRate);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!enabled || !(request instanceof HttpServletRequest req) || !(response instanceof HttpServletResponse res)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (req.isAsyncStarted()) {
+                // Реактивный эндпоинт: статус известен только по завершении async-обработки
+                req.getAsyncContext().addListener(new CompletionListener(req, res, startedAt));
+            } else {
+                record(req, res, System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    void record(HttpServletRequest request, HttpServletResponse response, long durationNanos) {
+        int status = response.getStatus();
+        if (status < 400 && durationNanos < slowThresholdNanos && !sampled()) {
+            return;
+        }
+
+        long sequence = buffer.claim();
+        if (sequence < 0) {
+            droppedCounter.increment();
+            return;
+        }
+
+        AccessLogRingBuffer.Entry entry = buffer.entry(sequence);
+        try {
+            entry.timestamp = System.currentTimeMillis();
+            entry.method = request.getMethod();
+            entry.uri = request.getRequestURI();
+            entry.query = request.getQueryString();
+            entry.status = status;
+            entry.durationNanos = durationNanos;
+            entry.remoteAddress = request.getRemoteAddr();
+            entry.userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        } finally {
+            buffer.publish(sequence);
+        }
+    }
+
+    int drain() {
+        return buffer.drain(AccessLogFilter::write, drainBatchSize);
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void run() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(drainIntervalNanos);
+            }
+        }
+        // После остановки дописываем все, что успели опубликовать
+        while (drain() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void write(AccessLogRingBuffer.Entry entry) {
+        int status = entry.status;
+        // Остальные поля попадают только в JSON, не в текст сообщения
+        String message = "{} {} {} {}";
+        Object[] arguments = {
+                keyValue("method", entry.method),
+                keyValue("uri", entry.query != null ? entry.uri + "?" + entry.query : entry.uri),
+                keyValue("status", status),
+                keyValue("duration_ms", TimeUnit.NANOSECONDS.toMillis(entry.durationNanos)),
+                keyValue("remote", entry.remoteAddress),
+                keyValue("user_agent", entry.userAgent),
+                keyValue("request_time", entry.timestamp)
+        };
+        if (status >= 500) {
+            accessLog.warn(message, arguments);
+        } else {
+            accessLog.info(message, arguments);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (drainer == null) {
+            return;
+        }
+
+        running = false;
+        LockSupport.unpark(drainer);
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private final class CompletionListener implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final long startedAt;
+
+        private CompletionListener(HttpServletRequest request, HttpServletResponse response, long startedAt) {
+            this.request = request;
+            this.response = response;
+            this.startedAt = startedAt;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, response, System.nanoTime() - startedAt);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
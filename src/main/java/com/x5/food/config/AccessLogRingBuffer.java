@@ -0,0 +1,103 @@
+package com.x5.food.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Кольцевой буфер заранее созданных записей access-лога: много писателей, один читатель.
+ * Писатель занимает слот CAS-ом и заполняет поля без аллокаций, при заполненном буфере
+ * запись отбрасывается - запрос никогда не ждет логирования.
+ */
+final class AccessLogRingBuffer {
+
+    private final Entry[] entries;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+
+    AccessLogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+        }
+    }
+
+    /**
+     * @return номер слота или -1, если буфер заполнен. Занятый слот обязательно публикуется
+     * через {@link #publish(long)}, иначе читатель остановится на нем
+     */
+    long claim() {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= entries.length) {
+                return -1;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        return sequence;
+    }
+
+    Entry entry(long sequence) {
+        return entries[(int) (sequence & mask)];
+    }
+
+    void publish(long sequence) {
+        entry(sequence).published = sequence;
+    }
+
+    /**
+     * Передает опубликованные записи по порядку, не больше max. Вызывается одним потоком.
+     */
+    int drain(Consumer<Entry> handler, int max) {
+        int drained = 0;
+        long next = consumed;
+        while (drained < max) {
+            Entry entry = entries[(int) (next & mask)];
+            if (entry.published != next) {
+                break;
+            }
+            try {
+                handler.accept(entry);
+            } finally {
+                entry.clear();
+                // Слот освобождается для писателей только после обработки
+                consumed = ++next;
+            }
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        return (int) (claimed.get() - consumed);
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    static final class Entry {
+
+        private volatile long published = -1;
+
+        long timestamp;
+        String method;
+        String uri;
+        String query;
+        int status;
+        long durationNanos;
+        String remoteAddress;
+        String userAgent;
+
+        // Ссылки на строки запроса не удерживаются после записи в лог
+        private void clear() {
+            method = null;
+            uri = null;
+            query = null;
+            remoteAddress = null;
+            userAgent = null;
+        }
+    }
+}
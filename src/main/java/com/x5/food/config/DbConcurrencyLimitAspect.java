@@ -0,0 +1,86 @@
+package com.x5.food.config;
+
+import com.x5.food.exception.DatabaseBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничивает число потоков, одновременно работающих с БД. На виртуальных потоках
+ * тысячи запросов иначе выстраиваются в очередь Hikari и падают по connection-timeout.
+ * Семафор паркует виртуальный поток без пиннинга, разрешение берется один раз
+ * на самую внешнюю транзакцию или вызов репозитория и удерживается до ее завершения.
+ */
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "db.concurrency-limit.enabled", havingValue = "true")
+public class DbConcurrencyLimitAspect {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+    private final Counter rejectedCounter;
+
+    // Глубина вложенности в текущем потоке - вложенные вызовы используют уже взятое разрешение
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    public DbConcurrencyLimitAspect(@Value("${db.concurrency-limit.max-concurrent:10}") int maxConcurrent,
+                                    @Value("${db.concurrency-limit.acquire-timeout:5s}") Duration acquireTimeout,
+                                    MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.rejectedCounter = Counter.builder("db.concurrency.rejected")
+                .description("DB accesses rejected because no permit was available in time")
+                .register(meterRegistry);
+        Gauge.builder("db.concurrency.available", permits, Semaphore::availablePermits)
+                .description("Free DB access permits")
+                .register(meterRegistry);
+        Gauge.builder("db.concurrency.waiting", permits, Semaphore::getQueueLength)
+                .description("Threads waiting for a DB access permit")
+                .register(meterRegistry);
+    }
+
+    @Around("@annotation(org.springframework.transaction.annotation.Transactional)"
+            + " || execution(* org.springframework.data.repository.Repository+.*(..))"
+            + " || within(com.x5.food.repository..*)")
+    public Object limit(ProceedingJoinPoint joinPoint) throws Throwable {
+        int[] currentDepth = depth.get();
+        if (currentDepth[0] > 0) {
+            return proceedNested(joinPoint, currentDepth);
+        }
+
+        if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            rejectedCounter.increment();
+            log.warn("No DB permit available for {}", joinPoint.getSignature().toShortString());
+            throw new DatabaseBusyException("База данных перегружена, повторите запрос позже");
+        }
+        try {
+            return proceedNested(joinPoint, currentDepth);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Object proceedNested(ProceedingJoinPoint joinPoint, int[] currentDepth) throws Throwable {
+        currentDepth[0]++;
+        try {
+            return joinPoint.proceed();
+        } finally {
+            currentDepth[0]--;
+        }
+    }
+}
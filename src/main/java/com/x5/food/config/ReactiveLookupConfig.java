@@ -0,0 +1,31 @@
+package com.x5.food.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+@Configuration
+@ConditionalOnProperty(name = "lookup.reactive.enabled", havingValue = "true")
+public class ReactiveLookupConfig {
+
+    /**
+     * Отдельный пул для JDBC-вызовов реактивного пути: блокирующий драйвер не должен
+     * занимать потоки event loop. Размер совпадает с пулом соединений Hikari.
+     * В режиме виртуальных потоков каждый вызов получает свой виртуальный поток,
+     * а число одновременных обращений к БД ограничивает {@link DbConcurrencyLimitAspect}.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(@Value("${lookup.reactive.jdbc-threads:10}") int threads,
+                                   @Value("${lookup.reactive.jdbc-queue-size:1000}") int queueSize,
+                                   @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "jdbc-virtual");
+        }
+        return Schedulers.newBoundedElastic(threads, queueSize, "jdbc");
+    }
+}
@@ -1,16 +1,61 @@
 package com.x5.food.config;
 
+import com.x5.food.external.OpenFoodFactsResponseDecoder;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+
+/**
+ * Клиент OpenFoodFacts с собственным пулом соединений: ограничены число соединений и
+ * очередь ожидания, простаивающие соединения вытесняются, у каждого запроса есть
+ * таймаут соединения и ответа. Метрики пула публикуются как {@code reactor.netty.connection.provider.*}.
+ */
 @Configuration
 public class WebClientConfig {
 
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider externalConnectionProvider(
+            @Value("${external.http.max-connections:50}") int maxConnections,
+            @Value("${external.http.pending-acquire-max-count:100}") int pendingAcquireMaxCount,
+            @Value("${external.http.pending-acquire-timeout:2s}") Duration pendingAcquireTimeout,
+            @Value("${external.http.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${external.http.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${external.http.evict-interval:30s}") Duration evictInterval) {
+        return ConnectionProvider.builder("openfoodfacts")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient webClient() {
+    public WebClient webClient(ConnectionProvider externalConnectionProvider,
+                               OpenFoodFactsResponseDecoder openFoodFactsResponseDecoder,
+                               @Value("${external.http.connect-timeout:2s}") Duration connectTimeout,
+                               @Value("${external.http.response-timeout:5s}") Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.create(externalConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                .metrics(true, uri -> "/api/v2/product/{barcode}");
+
         return WebClient.builder()
-                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(2 * 1024 * 1024)) // 2MB
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(configurer -> {
+                    configurer.defaultCodecs().maxInMemorySize(2 * 1024 * 1024); // 2MB
+                    // Типизированный декодер идет раньше стандартного Jackson
+                    configurer.customCodecs().register(openFoodFactsResponseDecoder);
+                })
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,25 @@
 package com.x5.food.controller;
 
+import com.x5.food.barcode.GtinNormalizer;
+import com.x5.food.dto.BarcodeStatisticsResponse;
+import com.x5.food.dto.BatchLookupRequest;
+import com.x5.food.dto.BatchLookupResponse;
 import com.x5.food.dto.ProductResponse;
 import com.x5.food.exception.BadRequestException;
+import com.x5.food.exception.ExternalServiceUnavailableException;
 import com.x5.food.exception.ResourceNotFoundException;
 import com.x5.food.service.BarcodeService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Slf4j
 @RestController
 @RequestMapping(path = "api/barcode")
@@ -18,20 +27,58 @@ import org.springframework.web.bind.annotation.*;
 public class BarcodeController {
 
     private final BarcodeService barcodeService;
+    private final ProductHttpCaching productHttpCaching;
+
+    @Value("${api.batch.max-size:500}")
+    private int maxBatchSize;
 
     @GetMapping("/{barcode}")
-    public ResponseEntity<ProductResponse> getProductByBarcode(@PathVariable String barcode) {
-        if (barcode == null || barcode.isEmpty()) {
-            throw new BadRequestException("Штрих-код не может быть пустым");
-        }
+    public ResponseEntity<ProductResponse> getProductByBarcode(
+            @PathVariable String barcode,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // UPC-A и EAN-13 одного товара приводятся к одному ключу кэша и БД;
+        // неверный формат отклоняется до кэша, БД и внешнего API
+        String canonicalBarcode = GtinNormalizer.requireCanonical(barcode);
 
-        BarcodeService.ResponseWithStatus responseWithStatus = barcodeService.getProductByBarcode(barcode);
+        BarcodeService.ResponseWithStatus responseWithStatus = barcodeService.getProductByBarcode(canonicalBarcode);
 
+        if (responseWithStatus.status() == HttpStatus.SERVICE_UNAVAILABLE) {
+            throw new ExternalServiceUnavailableException("Внешний сервис временно недоступен, повторите запрос позже", null);
+        }
         if (responseWithStatus.response() == null) {
             throw new ResourceNotFoundException("Продукт с таким штрих-кодом не найден");
         }
 
-        return ResponseEntity.status(responseWithStatus.status()).body(responseWithStatus.response());
+        return productHttpCaching.respond(responseWithStatus.status(), responseWithStatus.response(), ifNoneMatch);
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchLookupResponse> getProductsByBarcodes(@RequestBody BatchLookupRequest request) {
+        if (request == null || request.barcodes() == null || request.barcodes().isEmpty()) {
+            throw new BadRequestException("Список штрих-кодов не может быть пустым");
+        }
+        if (request.barcodes().size() > maxBatchSize) {
+            throw new BadRequestException("Слишком много штрих-кодов в запросе, максимум " + maxBatchSize);
+        }
+
+        List<String> canonicalBarcodes = request.barcodes().stream()
+                .map(GtinNormalizer::requireCanonical)
+                .toList();
+
+        return ResponseEntity.ok(barcodeService.getProductsByBarcodes(canonicalBarcodes));
+    }
+
+    @GetMapping("/statistics")
+    public ResponseEntity<BarcodeStatisticsResponse> getStatistics() {
+        return ResponseEntity.ok(barcodeService.getBarcodeAndSkuCounts());
+    }
+
+    @PostMapping("/statistics/recompute")
+    public ResponseEntity<BarcodeStatisticsResponse> recomputeStatistics(HttpServletRequest request) {
+        if (!isLocalIp(request.getRemoteAddr())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(barcodeService.recomputeBarcodeAndSkuCounts());
     }
 
     @DeleteMapping("/{barcode}")
@@ -43,7 +90,9 @@ public class BarcodeController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body("Доступ запрещен");
         }
-        barcodeService.deleteBarcodeById(barcode);
+        // Ключ, не являющийся GTIN и сохраненный до проверки формата, удаляем как есть
+        String canonicalBarcode = GtinNormalizer.normalize(barcode);
+        barcodeService.deleteBarcodeById(canonicalBarcode != null ? canonicalBarcode : barcode);
         return ResponseEntity.status(HttpStatus.OK).build();
     }
 
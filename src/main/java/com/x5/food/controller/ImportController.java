@@ -0,0 +1,67 @@
+package com.x5.food.controller;
+
+import com.x5.food.dto.ImportRequest;
+import com.x5.food.dto.ImportStatusResponse;
+import com.x5.food.exception.BadRequestException;
+import com.x5.food.exception.ResourceNotFoundException;
+import com.x5.food.importer.DumpFormat;
+import com.x5.food.importer.DumpImporter;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Загрузка дампа OpenFoodFacts в БД, чтобы холодные штрих-коды не ходили во внешний API.
+ * Как и прочие административные операции - только с локального адреса.
+ */
+@RestController
+@RequestMapping(path = "api/admin/import")
+@RequiredArgsConstructor
+public class ImportController {
+
+    private final DumpImporter dumpImporter;
+
+    @PostMapping
+    public ResponseEntity<ImportStatusResponse> startImport(@RequestBody ImportRequest importRequest,
+                                                            HttpServletRequest request) {
+        if (!isLocalIp(request.getRemoteAddr())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (importRequest == null) {
+            throw new BadRequestException("Не указан файл дампа");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(dumpImporter.start(importRequest.file(), parseFormat(importRequest.format())));
+    }
+
+    @GetMapping
+    public ResponseEntity<ImportStatusResponse> getImportStatus(HttpServletRequest request) {
+        if (!isLocalIp(request.getRemoteAddr())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return dumpImporter.status()
+                .map(ResponseEntity::ok)
+                .orElseThrow(() -> new ResourceNotFoundException("Импорт еще не запускался"));
+    }
+
+    private DumpFormat parseFormat(String format) {
+        if (format == null || format.isBlank()) {
+            return null;
+        }
+        try {
+            return DumpFormat.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Неизвестный формат дампа: " + format + ", ожидается JSONL или CSV");
+        }
+    }
+
+    private boolean isLocalIp(String ip) {
+        return "127.0.0.1".equals(ip) || "localhost".equals(ip) || "::1".equals(ip);
+    }
+}
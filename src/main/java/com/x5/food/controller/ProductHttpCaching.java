@@ -0,0 +1,88 @@
+package com.x5.food.controller;
+
+import com.x5.food.dto.ProductResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * HTTP-кэширование ответов поиска продукта: сильный ETag от содержимого (FNV-1a 64 по SKU,
+ * имени и штрих-кодам) и Cache-Control с max-age и stale-while-revalidate.
+ * Совпавший If-None-Match дает 304 без тела - ответ не сериализуется.
+ */
+@Component
+public class ProductHttpCaching {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // Разделитель полей: ("ab", "c") и ("a", "bc") дают разные ETag
+    private static final char SEPARATOR = 0x1F;
+
+    @Value("${api.http-cache.max-age:5m}")
+    private Duration maxAge;
+
+    @Value("${api.http-cache.stale-while-revalidate:1h}")
+    private Duration staleWhileRevalidate;
+
+    public ResponseEntity<ProductResponse> respond(HttpStatus status, ProductResponse product, String ifNoneMatch) {
+        String etag = etag(product);
+        boolean notModified = matches(ifNoneMatch, etag);
+
+        // ETag и Cache-Control нужны и в 304, иначе клиент не продлит свою копию
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : status)
+                .eTag(etag)
+                .cacheControl(cacheControl());
+        return notModified ? builder.build() : builder.body(product);
+    }
+
+    static String etag(ProductResponse product) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, product.sku());
+        hash = hash(hash, product.name());
+        for (String barcode : product.barcodes()) {
+            hash = hash(hash, barcode);
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    // If-None-Match сравнивается слабо (RFC 9110): префикс W/ не мешает совпадению
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag)) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private CacheControl cacheControl() {
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).cachePublic();
+        return staleWhileRevalidate.isZero() ? cacheControl : cacheControl.staleWhileRevalidate(staleWhileRevalidate);
+    }
+
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        hash ^= SEPARATOR;
+        return hash * FNV_PRIME;
+    }
+}
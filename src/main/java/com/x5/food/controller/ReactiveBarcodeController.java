@@ -0,0 +1,54 @@
+package com.x5.food.controller;
+
+import com.x5.food.barcode.GtinNormalizer;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import com.x5.food.exception.ResourceNotFoundException;
+import com.x5.food.service.ReactiveBarcodeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Реактивный поиск по штрих-коду рядом с MVC-эндпоинтом для сравнения пропускной способности.
+ * Поток Tomcat освобождается сразу после возврата Mono (servlet async).
+ */
+@Slf4j
+@RestController
+@RequestMapping(path = "api/reactive/barcode")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "lookup.reactive.enabled", havingValue = "true")
+public class ReactiveBarcodeController {
+
+    private final ReactiveBarcodeService reactiveBarcodeService;
+    private final ProductHttpCaching productHttpCaching;
+
+    @GetMapping("/{barcode}")
+    public Mono<ResponseEntity<ProductResponse>> getProductByBarcode(
+            @PathVariable String barcode,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String canonicalBarcode = GtinNormalizer.requireCanonical(barcode);
+
+        return reactiveBarcodeService.getProductByBarcode(canonicalBarcode)
+                .map(responseWithStatus -> {
+                    if (responseWithStatus.status() == HttpStatus.SERVICE_UNAVAILABLE) {
+                        throw new ExternalServiceUnavailableException(
+                                "Внешний сервис временно недоступен, повторите запрос позже", null);
+                    }
+                    if (responseWithStatus.response() == null) {
+                        throw new ResourceNotFoundException("Продукт с таким штрих-кодом не найден");
+                    }
+                    return productHttpCaching.respond(
+                            responseWithStatus.status(), responseWithStatus.response(), ifNoneMatch);
+                });
+    }
+}
@@ -2,8 +2,11 @@ package com.x5.food.controller.exception.handler;
 
 import com.x5.food.dto.ErrorResponse;
 import com.x5.food.exception.BadRequestException;
+import com.x5.food.exception.DatabaseBusyException;
+import com.x5.food.exception.ExternalServiceUnavailableException;
 import com.x5.food.exception.ResourceNotFoundException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -31,7 +34,10 @@ public class GlobalExceptionHandler {
                 "Ресурс не найден",
                 ex.getMessage()
         );
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        // 404 кэшируется прокси эвристически - запрещаем, иначе новый товар будет "не найден" и после появления
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .cacheControl(CacheControl.noStore())
+                .body(error);
     }
 
     @ExceptionHandler(BadRequestException.class)
@@ -44,4 +50,26 @@ public class GlobalExceptionHandler {
         );
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
-}
+
+    @ExceptionHandler(DatabaseBusyException.class)
+    public ResponseEntity<ErrorResponse> handleDatabaseBusy(DatabaseBusyException ex) {
+        log.warn("База данных перегружена: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Сервис временно недоступен",
+                ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    @ExceptionHandler(ExternalServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleExternalServiceUnavailable(ExternalServiceUnavailableException ex) {
+        log.warn("Внешний сервис недоступен: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Внешний сервис недоступен",
+                ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.x5.food.dto;
+
+import java.time.Instant;
+
+public record BarcodeStatisticsResponse(
+        long barcodesCount,
+        long skuCount,
+        // Когда счетчики последний раз сверялись с таблицей barcode
+        Instant reconciledAt,
+        // Граница устаревания: расхождение с БД не живет дольше интервала сверки
+        long maxStalenessSeconds
+) {
+}
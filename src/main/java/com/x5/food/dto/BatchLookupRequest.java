@@ -0,0 +1,8 @@
+package com.x5.food.dto;
+
+import java.util.List;
+
+public record BatchLookupRequest(
+        List<String> barcodes
+) {
+}
@@ -0,0 +1,42 @@
+package com.x5.food.dto;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+public record BatchLookupResponse(
+        List<Item> items
+) {
+
+    public record Item(
+            String barcode,
+            Source source,
+            int status,
+            ProductResponse product
+    ) {
+
+        public static Item fromDatabase(String barcode, ProductResponse product) {
+            return new Item(barcode, Source.DB, HttpStatus.OK.value(), product);
+        }
+
+        public static Item fromExternal(String barcode, ProductResponse product) {
+            return new Item(barcode, Source.EXTERNAL, HttpStatus.CREATED.value(), product);
+        }
+
+        public static Item notFound(String barcode) {
+            return new Item(barcode, Source.NOT_FOUND, HttpStatus.NOT_FOUND.value(), null);
+        }
+
+        public static Item upstreamUnavailable(String barcode) {
+            return new Item(barcode, Source.UPSTREAM_UNAVAILABLE, HttpStatus.SERVICE_UNAVAILABLE.value(), null);
+        }
+    }
+
+    // Источник результата - аналог статусов 200/201/404/503 одиночного запроса
+    public enum Source {
+        DB,
+        EXTERNAL,
+        NOT_FOUND,
+        UPSTREAM_UNAVAILABLE
+    }
+}
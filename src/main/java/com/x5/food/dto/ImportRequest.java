@@ -0,0 +1,9 @@
+package com.x5.food.dto;
+
+public record ImportRequest(
+        // Имя файла дампа внутри import.dump.directory
+        String file,
+        // JSONL или CSV; по умолчанию - по расширению файла
+        String format
+) {
+}
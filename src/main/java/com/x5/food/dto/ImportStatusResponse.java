@@ -0,0 +1,26 @@
+package com.x5.food.dto;
+
+import java.time.Instant;
+
+public record ImportStatusResponse(
+        String file,
+        State state,
+        // Строк дампа, пропущенных при возобновлении по контрольной точке
+        long resumedFromLine,
+        long linesRead,
+        long imported,
+        long skipped,
+        // Штрих-коды, не импортированные: их SKU уже занят другим продуктом
+        long collisions,
+        double rowsPerSecond,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
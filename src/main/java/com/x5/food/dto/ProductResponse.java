@@ -1,5 +1,7 @@
 package com.x5.food.dto;
 
+import com.x5.food.barcode.GtinNormalizer;
+import com.x5.food.dto.projection.ProductProjection;
 import com.x5.food.entity.Barcode;
 import com.x5.food.entity.Product;
 
@@ -24,16 +26,30 @@ public record ProductResponse(
         );
     }
 
+    public static ProductResponse fromProjection(ProductProjection projection) {
+        return new ProductResponse(
+                projection.getSku(),
+                projection.getName(),
+                List.of(projection.getBarcodes())
+        );
+    }
+
     public static ProductResponse fromExternal(OpenFoodFactsResponse externalResponse, String barcode) {
         var product = externalResponse.product();
 
+        // SKU и сохраняемый штрих-код - от канонической формы, иначе UPC-A и EAN-13 дали бы разные строки
+        String canonicalBarcode = GtinNormalizer.normalize(barcode);
+        if (canonicalBarcode == null) {
+            canonicalBarcode = barcode;
+        }
+
         String name = buildProductName(product);
-        String sku = "SKU_" + getLastSixDigits(barcode);
+        String sku = "SKU_" + getLastSixDigits(canonicalBarcode);
 
         return new ProductResponse(
                 sku,
                 name,
-                List.of(barcode)
+                List.of(canonicalBarcode)
         );
     }
 
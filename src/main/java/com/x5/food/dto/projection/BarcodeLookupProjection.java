@@ -0,0 +1,6 @@
+package com.x5.food.dto.projection;
+
+public interface BarcodeLookupProjection extends ProductProjection {
+    // Штрих-код из запроса, по которому найден продукт
+    String getBarcode();
+}
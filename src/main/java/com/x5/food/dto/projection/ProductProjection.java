@@ -1,15 +1,19 @@
 package com.x5.food.dto.projection;
 
+import java.time.Instant;
 
-import org.springframework.beans.factory.annotation.Value;
-
-import java.util.List;
-
+/**
+ * Закрытая проекция продукта для native-запросов: SKU, имя и все штрих-коды SKU
+ * за один SQL-запрос, без сущностей в persistence context.
+ */
 public interface ProductProjection {
     String getSku();
 
     String getName();
 
-    @Value("#{target.barcodes.![barcode]}")
-    List<String> getBarcodes();
-}
\ No newline at end of file
+    // Все штрих-коды SKU (array_agg): ключи не-GTIN могут содержать запятую, разделитель не годится
+    String[] getBarcodes();
+
+    // Когда продукт последний раз получен из OpenFoodFacts; null - строки до появления колонки
+    Instant getFetchedAt();
+}
@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
 import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -24,6 +25,10 @@ public class Product {
     @Column(name = "name", nullable = false, length = 1024)
     private String name;
 
+    // Когда продукт последний раз получен из OpenFoodFacts; null - до появления колонки
+    @Column(name = "fetched_at")
+    private Instant fetchedAt;
+
     @OneToMany(mappedBy = "sku")
     private Set<Barcode> barcodes = new LinkedHashSet<>();
 
@@ -0,0 +1,52 @@
+package com.x5.food.external;
+
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Ограничивает число одновременных обращений к OpenFoodFacts. Без ожидания: при
+ * зависшем внешнем API лишние вызовы сразу получают отказ, а не копятся в очереди пула.
+ * Разрешение удерживается на весь вызов вместе с повторами и освобождается при
+ * любом завершении, включая отмену подписки.
+ */
+@Slf4j
+@Component
+public class ExternalCallBulkhead {
+
+    private final Semaphore permits;
+    private final Counter rejectedCounter;
+
+    public ExternalCallBulkhead(@Value("${external.bulkhead.max-concurrent:32}") int maxConcurrent,
+                                MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.rejectedCounter = Counter.builder("external.bulkhead.rejected")
+                .description("Upstream calls rejected because too many were in flight")
+                .register(meterRegistry);
+        Gauge.builder("external.bulkhead.available", permits, Semaphore::availablePermits)
+                .description("Free upstream call permits")
+                .register(meterRegistry);
+        Gauge.builder("external.bulkhead.in-flight", permits, semaphore -> maxConcurrent - semaphore.availablePermits())
+                .description("Upstream calls in flight")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> execute(String barcode, Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!permits.tryAcquire()) {
+                rejectedCounter.increment();
+                log.warn("External call rejected by bulkhead for barcode: {}", barcode);
+                return Mono.error(new ExternalServiceUnavailableException(
+                        "Too many concurrent external calls, rejected barcode: " + barcode, null));
+            }
+            return call.doFinally(signal -> permits.release());
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.x5.food.external;
+
+import com.x5.food.exception.ApiResponseFormatException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Метрики обращений к OpenFoodFacts: отдельные попытки, повторы и весь вызов целиком.
+ * Теги только из фиксированных наборов значений - без штрих-кодов и URL.
+ */
+@Component
+public class ExternalCallMetrics {
+
+    enum AttemptOutcome {
+        SUCCESS, NOT_FOUND, CLIENT_ERROR, THROTTLED, SERVER_ERROR, TIMEOUT, IO_ERROR, ERROR
+    }
+
+    enum CallOutcome {
+        FOUND, NOT_FOUND, INVALID_RESPONSE, UNAVAILABLE
+    }
+
+    private final Map<AttemptOutcome, Timer> attemptTimers = new EnumMap<>(AttemptOutcome.class);
+    private final Map<AttemptOutcome, Counter> retryCounters = new EnumMap<>(AttemptOutcome.class);
+    private final Map<CallOutcome, Timer> callTimers = new EnumMap<>(CallOutcome.class);
+
+    public ExternalCallMetrics(MeterRegistry meterRegistry) {
+        for (AttemptOutcome outcome : AttemptOutcome.values()) {
+            attemptTimers.put(outcome, Timer.builder("external.request")
+                    .description("Latency of a single OpenFoodFacts attempt")
+                    .tag("outcome", tagValue(outcome))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            retryCounters.put(outcome, Counter.builder("external.retries")
+                    .description("OpenFoodFacts attempts retried, by the failure that caused the retry")
+                    .tag("reason", tagValue(outcome))
+                    .register(meterRegistry));
+        }
+        for (CallOutcome outcome : CallOutcome.values()) {
+            callTimers.put(outcome, Timer.builder("external.lookup")
+                    .description("Latency of an OpenFoodFacts lookup including retries and rate limiting")
+                    .tag("outcome", tagValue(outcome))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    void recordAttempt(long startedAtNanos, Throwable error) {
+        attemptTimers.get(classify(error)).record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordRetry(Throwable cause) {
+        retryCounters.get(classify(cause)).increment();
+    }
+
+    void recordCall(long startedAtNanos, CallOutcome outcome) {
+        callTimers.get(outcome).record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordCall(long startedAtNanos, Throwable error) {
+        recordCall(startedAtNanos, error instanceof ApiResponseFormatException
+                ? CallOutcome.INVALID_RESPONSE
+                : CallOutcome.UNAVAILABLE);
+    }
+
+    private static AttemptOutcome classify(Throwable error) {
+        if (error == null) {
+            return AttemptOutcome.SUCCESS;
+        }
+        if (error instanceof TimeoutException) {
+            return AttemptOutcome.TIMEOUT;
+        }
+        if (error instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            if (status == HttpStatus.NOT_FOUND.value()) {
+                return AttemptOutcome.NOT_FOUND;
+            }
+            if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                return AttemptOutcome.THROTTLED;
+            }
+            return status >= 500 ? AttemptOutcome.SERVER_ERROR : AttemptOutcome.CLIENT_ERROR;
+        }
+        return error instanceof WebClientRequestException ? AttemptOutcome.IO_ERROR : AttemptOutcome.ERROR;
+    }
+
+    private static String tagValue(Enum<?> outcome) {
+        return outcome.name().toLowerCase(Locale.ROOT);
+    }
+}
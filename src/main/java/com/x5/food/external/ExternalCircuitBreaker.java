@@ -0,0 +1,224 @@
+package com.x5.food.external;
+
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Автомат CLOSED -> OPEN -> HALF_OPEN вокруг вызова OpenFoodFacts (вместе с повторами).
+ * <ul>
+ *     <li>CLOSED: исходы последних вызовов в скользящем окне; при доле сбоев выше порога - OPEN.</li>
+ *     <li>OPEN: вызовы сразу завершаются {@link ExternalServiceUnavailableException} без сети и backoff.</li>
+ *     <li>HALF_OPEN: после паузы пропускается несколько пробных вызовов; все успешны - CLOSED, сбой - снова OPEN.</li>
+ * </ul>
+ * Переходы публикуются как {@link CircuitStateChangedEvent} и метрики {@code external.circuit.*}.
+ * Ошибки с исходом {@link Outcome#IGNORED} не попадают ни в окно, ни в счет проб.
+ */
+@Slf4j
+@Component
+public class ExternalCircuitBreaker {
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenProbes;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Counter shortCircuitedCounter;
+
+    // Скользящее окно исходов в состоянии CLOSED: true - сбой
+    private final boolean[] outcomes;
+    private int outcomeIndex;
+    private int recordedCalls;
+    private int failedCalls;
+
+    private volatile State state = State.CLOSED;
+    // Меняется при каждом переходе - исходы вызовов, начатых в прошлом состоянии, не учитываются
+    private long generation;
+    private long openedAtNanos;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    public ExternalCircuitBreaker(@Value("${external.circuit-breaker.sliding-window:20}") int windowSize,
+                                  @Value("${external.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                  @Value("${external.circuit-breaker.failure-rate-threshold:50}") double failureRateThreshold,
+                                  @Value("${external.circuit-breaker.open-duration:30s}") Duration openDuration,
+                                  @Value("${external.circuit-breaker.half-open-probes:3}") int halfOpenProbes,
+                                  ApplicationEventPublisher eventPublisher,
+                                  MeterRegistry meterRegistry) {
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.outcomes = new boolean[windowSize];
+
+        this.shortCircuitedCounter = Counter.builder("external.circuit.short-circuited")
+                .description("Upstream calls rejected without a request because the circuit is open")
+                .register(meterRegistry);
+        for (State candidate : State.values()) {
+            Gauge.builder("external.circuit.state", this, breaker -> breaker.state == candidate ? 1 : 0)
+                    .tag("state", candidate.tagValue())
+                    .description("1 for the current circuit breaker state")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("external.circuit.failure-rate", this, ExternalCircuitBreaker::failureRate)
+                .description("Failure rate in percent over the sliding window")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param classifier исход ошибки: сбой внешнего API, ответ API (например, "не найден")
+     *                   или локальный отказ, который ничего не говорит о состоянии API
+     */
+    public <T> Mono<T> execute(String barcode, Mono<T> call, Function<Throwable, Outcome> classifier) {
+        return Mono.defer(() -> {
+            long permit = tryAcquirePermission();
+            if (permit < 0) {
+                shortCircuitedCounter.increment();
+                log.debug("Circuit open, skipping external call for barcode: {}", barcode);
+                return Mono.error(new ExternalServiceUnavailableException(
+                        "Circuit breaker is open, external call skipped for barcode: " + barcode, null));
+            }
+            return call
+                    .doOnSuccess(value -> onResult(permit, false))
+                    .doOnError(e -> {
+                        Outcome outcome = classifier.apply(e);
+                        if (outcome == Outcome.IGNORED) {
+                            release(permit);
+                        } else {
+                            onResult(permit, outcome == Outcome.FAILURE);
+                        }
+                    })
+                    .doOnCancel(() -> release(permit));
+        });
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // Номер поколения, если вызов разрешен, иначе -1
+    private synchronized long tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openDurationNanos) {
+                return -1;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                return -1;
+            }
+            probesInFlight++;
+        }
+        return generation;
+    }
+
+    private synchronized void onResult(long permit, boolean failure) {
+        if (permit != generation) {
+            return;
+        }
+
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (failure) {
+                transitionTo(State.OPEN);
+            } else if (++probeSuccesses >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        if (state == State.CLOSED) {
+            record(failure);
+            if (recordedCalls >= minimumCalls && failureRate() >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    private synchronized void release(long permit) {
+        // Отмененная или отклоненная локально проба не дает исхода, но освобождает место для следующей
+        if (permit == generation && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recordedCalls == windowSize) {
+            if (outcomes[outcomeIndex]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        outcomes[outcomeIndex] = failure;
+        if (failure) {
+            failedCalls++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % windowSize;
+    }
+
+    private synchronized double failureRate() {
+        return recordedCalls == 0 ? 0 : failedCalls * 100.0 / recordedCalls;
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        double rate = failureRate();
+
+        state = target;
+        generation++;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (target == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        if (target == State.CLOSED) {
+            Arrays.fill(outcomes, false);
+            outcomeIndex = 0;
+            recordedCalls = 0;
+            failedCalls = 0;
+        }
+
+        log.warn("External API circuit breaker: {} -> {} (failure rate {}%)",
+                previous, target, String.format(Locale.ROOT, "%.1f", rate));
+        meterRegistry.counter("external.circuit.transitions",
+                "from", previous.tagValue(), "to", target.tagValue()).increment();
+        eventPublisher.publishEvent(new CircuitStateChangedEvent(previous, target, rate));
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN;
+
+        String tagValue() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS,
+        FAILURE,
+        IGNORED
+    }
+
+    public record CircuitStateChangedEvent(State from, State to, double failureRate) {
+    }
+}
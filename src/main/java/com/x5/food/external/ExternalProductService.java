@@ -3,18 +3,26 @@ package com.x5.food.external;
 import com.x5.food.dto.OpenFoodFactsResponse;
 import com.x5.food.dto.ProductResponse;
 import com.x5.food.exception.ApiResponseFormatException;
+import com.x5.food.exception.ExternalServiceUnavailableException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
@@ -22,20 +30,57 @@ import java.util.Optional;
 public class ExternalProductService {
 
     private final WebClient webClient;
+    private final ExternalCallBulkhead bulkhead;
+    private final ExternalCircuitBreaker circuitBreaker;
+    private final UpstreamRateLimiter rateLimiter;
+    private final ExternalCallMetrics metrics;
 
     @Value("${external.api.url}")
     private String externalApiUrl;
 
+    // Запрашиваем у OpenFoodFacts только используемые поля вместо документа в сотни КБ
+    @Value("${external.api.fields:code,product_name,brands,quantity,nutriments}")
+    private String fields;
+
     @Value("${external.retry.max-attempts:3}")
     private int maxAttempts;
 
     @Value("${external.retry.delay:1000}")
     private long retryDelay;
 
+    // Дедлайн одной попытки (включая чтение тела), мс; 0 - без ограничения
+    @Value("${external.timeout.attempt:5000}")
+    private long attemptTimeout;
+
+    // Дедлайн всего вызова вместе с повторами, мс; 0 - без ограничения
+    @Value("${external.timeout.total:15000}")
+    private long totalTimeout;
+
+    /**
+     * Пустой Optional означает, что OpenFoodFacts не знает штрих-код.
+     * Временная недоступность API завершается {@link ExternalServiceUnavailableException}.
+     */
     public Mono<Optional<ProductResponse>> getProductByBarcode(String barcode) {
-        String url = externalApiUrl + barcode;
+        return getProductByBarcode(barcode, LookupPriority.INTERACTIVE);
+    }
+
+    public Mono<Optional<ProductResponse>> getProductByBarcode(String barcode, LookupPriority priority) {
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return fetchProduct(barcode, priority)
+                    .doOnSuccess(product -> metrics.recordCall(startedAt, product.isPresent()
+                            ? ExternalCallMetrics.CallOutcome.FOUND
+                            : ExternalCallMetrics.CallOutcome.NOT_FOUND))
+                    .doOnError(e -> metrics.recordCall(startedAt, e));
+        });
+    }
+
+    private Mono<Optional<ProductResponse>> fetchProduct(String barcode, LookupPriority priority) {
+        String url = fields == null || fields.isEmpty()
+                ? externalApiUrl + barcode
+                : externalApiUrl + barcode + "?fields=" + fields;
 
-        return webClient.get()
+        Mono<OpenFoodFactsResponse> attempt = webClient.get()
                 .uri(url)
                 .retrieve()
                 .onStatus(HttpStatusCode::is4xxClientError, clientResponse ->
@@ -45,12 +90,35 @@ public class ExternalProductService {
                         Mono.error(createServerException(barcode, clientResponse))
                 )
                 .bodyToMono(OpenFoodFactsResponse.class)
+                .doOnSuccess(response -> rateLimiter.onSuccess());
+
+        // Время попытки - без ожидания разрешения ограничителя скорости
+        Mono<OpenFoodFactsResponse> timedAttempt = Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            return withTimeout(attempt, attemptTimeout)
+                    .doOnSuccess(response -> metrics.recordAttempt(startedAt, null))
+                    .doOnError(e -> metrics.recordAttempt(startedAt, e));
+        });
+
+        // Разрешение берется на каждую попытку, поэтому повторы тоже проходят через лимит и Retry-After
+        Mono<OpenFoodFactsResponse> call = timedAttempt
                 .retryWhen(Retry.backoff(maxAttempts, Duration.ofMillis(retryDelay))
                         .filter(this::isRetryableException)
+                        .doBeforeRetry(retrySignal -> metrics.recordRetry(retrySignal.failure()))
+                        .doBeforeRetryAsync(retrySignal -> rateLimiter.acquire(barcode, priority))
                         .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
                             log.warn("All retry attempts failed for barcode: {}", barcode, retrySignal.failure());
                             return createRetryExhaustedException(barcode, retrySignal.failure());
-                        }))
+                        }));
+
+        // При разомкнутой цепи вызов завершается сразу, без попыток и backoff
+        Mono<OpenFoodFactsResponse> guarded = circuitBreaker.execute(barcode,
+                withTimeout(call, totalTimeout), this::classifyFailure);
+
+        // Разрешение на первую попытку - до bulkhead, цепи и общего дедлайна: ожидающие в очереди
+        // ограничителя не занимают места bulkhead и не расходуют timeout.total
+        return rateLimiter.acquire(barcode, priority)
+                .then(bulkhead.execute(barcode, guarded))
                 .flatMap(response -> processResponse(response, barcode))
                 .onErrorResume(throwable -> recoverGetProductByBarcode(throwable, barcode))
                 .defaultIfEmpty(Optional.empty()); // Гарантируем, что никогда не вернется null
@@ -83,8 +151,36 @@ public class ExternalProductService {
             return Mono.error(e);
         }
     }
+    private static <T> Mono<T> withTimeout(Mono<T> mono, long timeoutMillis) {
+        return timeoutMillis > 0 ? mono.timeout(Duration.ofMillis(timeoutMillis)) : mono;
+    }
+
     private boolean isRetryableException(Throwable throwable) {
-        return throwable instanceof WebClientResponseException;
+        // Зависшая попытка - такой же временный сбой, как обрыв соединения
+        if (throwable instanceof TimeoutException) {
+            return true;
+        }
+        // 404 - это ответ "продукт не найден", повтор его не изменит
+        if (throwable instanceof WebClientResponseException responseException) {
+            HttpStatusCode status = responseException.getStatusCode();
+            return status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+        }
+        return throwable instanceof WebClientRequestException;
+    }
+
+    private ExternalCircuitBreaker.Outcome classifyFailure(Throwable throwable) {
+        // Отказ ограничителя скорости - локальное решение: ни сбой, ни успех API
+        if (throwable instanceof ExternalServiceUnavailableException) {
+            return ExternalCircuitBreaker.Outcome.IGNORED;
+        }
+        // 404 и прочие 4xx - API отвечает, это не повод размыкать цепь
+        if (throwable instanceof WebClientResponseException responseException) {
+            HttpStatusCode status = responseException.getStatusCode();
+            return status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                    ? ExternalCircuitBreaker.Outcome.FAILURE
+                    : ExternalCircuitBreaker.Outcome.SUCCESS;
+        }
+        return ExternalCircuitBreaker.Outcome.FAILURE;
     }
 
     private RuntimeException createRetryExhaustedException(String barcode, Throwable cause) {
@@ -95,6 +191,11 @@ public class ExternalProductService {
                                                              org.springframework.web.reactive.function.client.ClientResponse clientResponse) {
         log.error("Client error when fetching product for barcode: {}. Status: {}",
                 barcode, clientResponse.statusCode());
+        if (clientResponse.statusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            rateLimiter.onThrottled(parseRetryAfter(clientResponse.headers().asHttpHeaders().getFirst(HttpHeaders.RETRY_AFTER)));
+        } else {
+            rateLimiter.onSuccess();
+        }
         return WebClientResponseException.create(
                 clientResponse.statusCode().value(),
                 "Client error for barcode: " + barcode,
@@ -108,6 +209,7 @@ public class ExternalProductService {
                                                              org.springframework.web.reactive.function.client.ClientResponse clientResponse) {
         log.error("Server error when fetching product for barcode: {}. Status: {}",
                 barcode, clientResponse.statusCode());
+        rateLimiter.onServerError();
         return WebClientResponseException.create(
                 clientResponse.statusCode().value(),
                 "Server error for barcode: " + barcode,
@@ -117,16 +219,39 @@ public class ExternalProductService {
         );
     }
 
+    // Retry-After: число секунд или HTTP-дата
+    static Duration parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime until = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Duration.between(ZonedDateTime.now(until.getZone()), until);
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
     private Mono<Optional<ProductResponse>> recoverGetProductByBarcode(Throwable e, String barcode) {
         log.warn("Recovering from error after all retry attempts for barcode: {}", barcode, e);
 
-        // Если это наше бизнес-исключение - пробрасываем его дальше
-        if (e instanceof ApiResponseFormatException) {
+        // Если это наше бизнес-исключение или отказ bulkhead - пробрасываем его дальше
+        if (e instanceof ApiResponseFormatException || e instanceof ExternalServiceUnavailableException) {
             return Mono.error(e);
         }
 
-        // Для других ошибок возвращаем empty
-        return Mono.just(Optional.empty());
+        // 404 от OpenFoodFacts - продукт действительно неизвестен
+        if (e instanceof WebClientResponseException.NotFound) {
+            return Mono.just(Optional.empty());
+        }
+
+        // Остальные ошибки - временная недоступность, ее нельзя путать с "не найден"
+        return Mono.error(new ExternalServiceUnavailableException(
+                "External product API is unavailable for barcode: " + barcode, e));
     }
 
 
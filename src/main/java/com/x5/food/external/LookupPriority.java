@@ -0,0 +1,10 @@
+package com.x5.food.external;
+
+/**
+ * Приоритет обращения к OpenFoodFacts: одиночные запросы пользователя обслуживаются
+ * раньше пакетных и фоновых.
+ */
+public enum LookupPriority {
+    INTERACTIVE,
+    BATCH
+}
@@ -0,0 +1,212 @@
+package com.x5.food.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x5.food.dto.OpenFoodFactsResponse;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Декодер {@link OpenFoodFactsResponse} для WebClient, регистрируется через customCodecs
+ * раньше стандартного Jackson. Режим STREAMING разбирает ответ по мере прихода буферов
+ * ({@link OpenFoodFactsStreamingParser}) и прекращает разбор после нужных полей;
+ * FULL - прежний путь: тело целиком в памяти и ObjectMapper. Для сравнения режимов на каждый
+ * ответ пишутся {@code external.response.bytes} и {@code external.response.parse.allocated}.
+ */
+@Slf4j
+@Component
+public class OpenFoodFactsResponseDecoder implements Decoder<OpenFoodFactsResponse> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMxBean();
+
+    private final JsonFactory jsonFactory;
+    private final Jackson2JsonDecoder fullDecoder;
+    private final Mode mode;
+    private final int maxInMemorySize;
+    private final DistributionSummary bytesSummary;
+    private final DistributionSummary allocatedSummary;
+
+    public OpenFoodFactsResponseDecoder(ObjectMapper objectMapper,
+                                        @Value("${external.parser.mode:STREAMING}") Mode mode,
+                                        @Value("${external.parser.max-in-memory-size:2097152}") int maxInMemorySize,
+                                        MeterRegistry meterRegistry) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.fullDecoder = new Jackson2JsonDecoder(objectMapper);
+        this.fullDecoder.setMaxInMemorySize(maxInMemorySize);
+        this.mode = mode;
+        this.maxInMemorySize = maxInMemorySize;
+
+        String parser = mode.name().toLowerCase(Locale.ROOT);
+        this.bytesSummary = DistributionSummary.builder("external.response.bytes")
+                .description("Upstream response bytes read per lookup")
+                .baseUnit("bytes")
+                .tag("parser", parser)
+                .register(meterRegistry);
+        this.allocatedSummary = DistributionSummary.builder("external.response.parse.allocated")
+                .description("Heap bytes allocated while parsing one upstream response")
+                .baseUnit("bytes")
+                .tag("parser", parser)
+                .register(meterRegistry);
+        log.info("OpenFoodFacts response decoder: mode={}, allocation tracking={}", mode, THREAD_MX_BEAN != null);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return OpenFoodFactsResponse.class.equals(elementType.toClass())
+                && (mimeType == null || MIME_TYPES.stream().anyMatch(supported -> supported.isCompatibleWith(mimeType)));
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    @Override
+    public Flux<OpenFoodFactsResponse> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                             @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return decodeToMono(inputStream, elementType, mimeType, hints).flux();
+    }
+
+    @Override
+    public Mono<OpenFoodFactsResponse> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                                    @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return mode == Mode.STREAMING
+                ? decodeStreaming(inputStream)
+                : decodeFull(inputStream, elementType, mimeType, hints);
+    }
+
+    private Mono<OpenFoodFactsResponse> decodeStreaming(Publisher<DataBuffer> inputStream) {
+        return Mono.using(() -> new Measurement(new OpenFoodFactsStreamingParser(jsonFactory)),
+                measurement -> Flux.from(inputStream)
+                        // Остаток ответа после нужных полей дочитывается без разбора: отмена
+                        // закрыла бы соединение вместо возврата в пул
+                        .doOnNext(buffer -> feed(measurement, buffer))
+                        .then(Mono.fromCallable(() -> measurement.measure(measurement.parser::finish))),
+                Measurement::close)
+                .onErrorMap(IOException.class, e -> new DecodingException("Invalid OpenFoodFacts response", e));
+    }
+
+    private void feed(Measurement measurement, DataBuffer buffer) {
+        // Дочитанный без разбора остаток тоже прочитан из сети - учитываем, как в режиме FULL
+        measurement.bytes.addAndGet(buffer.readableByteCount());
+        if (measurement.done) {
+            DataBufferUtils.release(buffer);
+            return;
+        }
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            boolean done = false;
+            while (!done && iterator.hasNext()) {
+                ByteBuffer chunk = iterator.next();
+                done = measurement.measure(() -> measurement.parser.feed(chunk));
+            }
+            measurement.done = done;
+        } catch (IOException e) {
+            throw new DecodingException("Invalid OpenFoodFacts response", e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    private Mono<OpenFoodFactsResponse> decodeFull(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                                   @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return DataBufferUtils.join(inputStream, maxInMemorySize)
+                .map(joined -> {
+                    bytesSummary.record(joined.readableByteCount());
+                    long before = allocatedBytes();
+                    try {
+                        return (OpenFoodFactsResponse) fullDecoder.decode(joined, elementType, mimeType, hints);
+                    } finally {
+                        recordAllocated(before);
+                    }
+                });
+    }
+
+    private long allocatedBytes() {
+        return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private void recordAllocated(long before) {
+        if (THREAD_MX_BEAN != null) {
+            allocatedSummary.record(THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() - before);
+        }
+    }
+
+    @Nullable
+    private static com.sun.management.ThreadMXBean threadMxBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+
+    public enum Mode {
+        STREAMING,
+        FULL
+    }
+
+    // Буферы одного ответа могут прийти на разных потоках event loop - аллокации суммируются по вызовам
+    private final class Measurement {
+
+        private final OpenFoodFactsStreamingParser parser;
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong allocated = new AtomicLong();
+        // Буферы одного ответа приходят последовательно, но на разных потоках
+        private volatile boolean done;
+
+        private Measurement(OpenFoodFactsStreamingParser parser) {
+            this.parser = parser;
+        }
+
+        private <T> T measure(ParserStep<T> step) throws IOException {
+            long before = allocatedBytes();
+            try {
+                return step.run();
+            } finally {
+                allocated.addAndGet(allocatedBytes() - before);
+            }
+        }
+
+        private void close() {
+            bytesSummary.record(bytes.get());
+            if (THREAD_MX_BEAN != null) {
+                allocatedSummary.record(allocated.get());
+            }
+            try {
+                parser.close();
+            } catch (IOException e) {
+                log.debug("Failed to close OpenFoodFacts parser", e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParserStep<T> {
+        T run() throws IOException;
+    }
+}
@@ -0,0 +1,184 @@
+package com.x5.food.external;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.x5.food.dto.OpenFoodFactsResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Инкрементальный разбор ответа OpenFoodFacts неблокирующим парсером Jackson.
+ * Из документа берутся только code, product_name, brands, quantity и
+ * nutriments.energy-kcal_100g; остальные значения пропускаются на уровне токенов,
+ * без построения дерева и объектов. Разбор заканчивается, как только закрыт объект product.
+ * Не потокобезопасен: один экземпляр на один ответ.
+ */
+final class OpenFoodFactsStreamingParser implements AutoCloseable {
+
+    // Глубина вложенности интересующих объектов: корень -> product -> nutriments
+    private static final int ROOT = 1;
+    private static final int PRODUCT = 2;
+    private static final int NUTRIMENTS = 3;
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+
+    private int depth;
+    // Глубина внутри пропускаемого объекта/массива
+    private int skipDepth;
+    private boolean done;
+
+    private String code;
+    private boolean productSeen;
+    private String productName;
+    private String brands;
+    private String quantity;
+    private boolean nutrimentsSeen;
+    private Double energyKcal;
+
+    OpenFoodFactsStreamingParser(JsonFactory jsonFactory) throws IOException {
+        this.parser = jsonFactory.createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * @return true, если все нужные поля прочитаны и остаток ответа можно не читать
+     */
+    boolean feed(ByteBuffer chunk) throws IOException {
+        if (done) {
+            return true;
+        }
+        feeder.feedInput(chunk);
+        drain();
+        return done;
+    }
+
+    /**
+     * @return разобранный ответ или null, если тело пустое
+     */
+    OpenFoodFactsResponse finish() throws IOException {
+        if (!done) {
+            feeder.endOfInput();
+            drain();
+        }
+        if (code == null && !productSeen) {
+            return null;
+        }
+
+        OpenFoodFactsResponse.Product product = productSeen
+                ? new OpenFoodFactsResponse.Product(productName, quantity, brands,
+                nutrimentsSeen ? new OpenFoodFactsResponse.Nutriments(energyKcal) : null)
+                : null;
+        return new OpenFoodFactsResponse(code, product);
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> enter(token);
+                case END_OBJECT, END_ARRAY -> leave();
+                case FIELD_NAME -> {
+                    // Имя поля доступно через currentName() у следующего значения
+                }
+                default -> {
+                    if (skipDepth == 0) {
+                        readScalar(token);
+                    }
+                }
+            }
+        }
+    }
+
+    private void enter(JsonToken token) throws IOException {
+        if (skipDepth > 0) {
+            skipDepth++;
+            return;
+        }
+        if (depth == 0) {
+            depth = ROOT;
+            return;
+        }
+
+        String name = parser.currentName();
+        if (token == JsonToken.START_OBJECT && depth == ROOT && "product".equals(name)) {
+            depth = PRODUCT;
+            productSeen = true;
+        } else if (token == JsonToken.START_OBJECT && depth == PRODUCT && "nutriments".equals(name)) {
+            depth = NUTRIMENTS;
+            nutrimentsSeen = true;
+        } else {
+            skipDepth = 1;
+        }
+    }
+
+    private void leave() {
+        if (skipDepth > 0) {
+            skipDepth--;
+            return;
+        }
+
+        depth--;
+        // Закрыт product (поля корня идут до него) или весь документ
+        if ((depth == ROOT && code != null) || depth == 0) {
+            done = true;
+        }
+    }
+
+    private void readScalar(JsonToken token) throws IOException {
+        String name = parser.currentName();
+        if (name == null) {
+            return;
+        }
+
+        switch (depth) {
+            case ROOT -> {
+                if ("code".equals(name)) {
+                    code = text(token);
+                }
+            }
+            case PRODUCT -> {
+                switch (name) {
+                    case "product_name" -> productName = text(token);
+                    case "brands" -> brands = text(token);
+                    case "quantity" -> quantity = text(token);
+                    default -> {
+                    }
+                }
+            }
+            case NUTRIMENTS -> {
+                if ("energy-kcal_100g".equals(name)) {
+                    energyKcal = number(token);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private String text(JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    private Double number(JsonToken token) throws IOException {
+        if (token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.valueOf(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
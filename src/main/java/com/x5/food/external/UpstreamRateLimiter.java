@@ -0,0 +1,273 @@
+package com.x5.food.external;
+
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Клиентский token bucket перед каждой попыткой запроса к OpenFoodFacts.
+ * <ul>
+ *     <li>Скорость адаптивная (AIMD): растет понемногу на успешных ответах и уменьшается
+ *     в разы на 429/5xx, не чаще раза за decrease-cooldown.</li>
+ *     <li>Retry-After из 429 останавливает выдачу разрешений до указанного момента.</li>
+ *     <li>Ожидающие разбиты по приоритетам: INTERACTIVE всегда раньше BATCH. Время ожидания
+ *     ограничено, по его истечении вызов завершается {@link ExternalServiceUnavailableException}.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class UpstreamRateLimiter {
+
+    private final boolean enabled;
+    private final double minRate;
+    private final double maxRate;
+    private final double burst;
+    private final double additiveIncrease;
+    private final double decreaseFactor;
+    private final long decreaseCooldownNanos;
+    private final long maxRetryAfterNanos;
+    private final Map<LookupPriority, Duration> maxWait = new EnumMap<>(LookupPriority.class);
+
+    private final Map<LookupPriority, Queue<Waiter>> queues = new EnumMap<>(LookupPriority.class);
+    private final Map<LookupPriority, Timer> waitTimers = new EnumMap<>(LookupPriority.class);
+    private final Map<LookupPriority, Counter> rejectedCounters = new EnumMap<>(LookupPriority.class);
+    private final MeterRegistry meterRegistry;
+    private final Scheduler timer = Schedulers.parallel();
+
+    // Состояние корзины, под монитором this
+    private double rate;
+    private double tokens;
+    private long refilledAtNanos = System.nanoTime();
+    private long blockedUntilNanos;
+    private long decreasedAtNanos;
+    private boolean drainScheduled;
+
+    public UpstreamRateLimiter(@Value("${external.rate-limit.enabled:true}") boolean enabled,
+                               @Value("${external.rate-limit.initial-rate:10}") double initialRate,
+                               @Value("${external.rate-limit.min-rate:1}") double minRate,
+                               @Value("${external.rate-limit.max-rate:20}") double maxRate,
+                               @Value("${external.rate-limit.burst:20}") double burst,
+                               @Value("${external.rate-limit.additive-increase:0.05}") double additiveIncrease,
+                               @Value("${external.rate-limit.decrease-factor:0.5}") double decreaseFactor,
+                               @Value("${external.rate-limit.decrease-cooldown:1s}") Duration decreaseCooldown,
+                               @Value("${external.rate-limit.max-retry-after:60s}") Duration maxRetryAfter,
+                               @Value("${external.rate-limit.max-wait.interactive:2s}") Duration interactiveMaxWait,
+                               @Value("${external.rate-limit.max-wait.batch:10s}") Duration batchMaxWait,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.burst = burst;
+        this.additiveIncrease = additiveIncrease;
+        this.decreaseFactor = decreaseFactor;
+        this.decreaseCooldownNanos = decreaseCooldown.toNanos();
+        this.maxRetryAfterNanos = maxRetryAfter.toNanos();
+        this.rate = Math.max(minRate, Math.min(maxRate, initialRate));
+        this.tokens = burst;
+        this.meterRegistry = meterRegistry;
+        maxWait.put(LookupPriority.INTERACTIVE, interactiveMaxWait);
+        maxWait.put(LookupPriority.BATCH, batchMaxWait);
+
+        for (LookupPriority priority : LookupPriority.values()) {
+            String tag = priority.name().toLowerCase(Locale.ROOT);
+            Queue<Waiter> queue = new ArrayDeque<>();
+            queues.put(priority, queue);
+            Gauge.builder("external.ratelimit.queue.depth", this, limiter -> limiter.queueDepth(priority))
+                    .tag("priority", tag)
+                    .description("Upstream calls waiting for a rate limiter permit")
+                    .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("external.ratelimit.wait")
+                    .tag("priority", tag)
+                    .description("Time spent waiting for a rate limiter permit")
+                    .register(meterRegistry));
+            rejectedCounters.put(priority, Counter.builder("external.ratelimit.rejected")
+                    .tag("priority", tag)
+                    .description("Upstream calls rejected after waiting too long for a permit")
+                    .register(meterRegistry));
+        }
+        Gauge.builder("external.ratelimit.rate", this, UpstreamRateLimiter::currentRate)
+                .description("Current permitted upstream request rate per second")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Завершается, когда выдано разрешение на одну попытку запроса.
+     */
+    public Mono<Void> acquire(String barcode, LookupPriority priority) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+
+        return Mono.<Void>create(sink -> {
+                    Waiter waiter = new Waiter(sink, priority, System.nanoTime());
+                    // Таймаут или отмена подписки убирают ожидающего из очереди
+                    sink.onDispose(() -> remove(waiter));
+                    enqueue(waiter);
+                })
+                .timeout(maxWait.get(priority), Mono.defer(() -> {
+                    rejectedCounters.get(priority).increment();
+                    log.warn("Rate limiter wait exceeded for barcode: {} ({})", barcode, priority);
+                    return Mono.error(new ExternalServiceUnavailableException(
+                            "Upstream rate limit queue wait exceeded for barcode: " + barcode, null));
+                }));
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + additiveIncrease);
+    }
+
+    /**
+     * Ответ 429: пауза по Retry-After (если есть) и снижение скорости.
+     */
+    public void onThrottled(Duration retryAfter) {
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (retryAfter != null && !retryAfter.isNegative()) {
+                blockedUntilNanos = Math.max(blockedUntilNanos, now + Math.min(retryAfter.toNanos(), maxRetryAfterNanos));
+            }
+            // Накопленный запас не должен сразу же выпустить новую пачку запросов
+            tokens = 0;
+            decrease(now, "429");
+        }
+        scheduleDrain();
+    }
+
+    public synchronized void onServerError() {
+        decrease(System.nanoTime(), "5xx");
+    }
+
+    synchronized double currentRate() {
+        return rate;
+    }
+
+    private void decrease(long now, String reason) {
+        meterRegistry.counter("external.ratelimit.throttled", "reason", reason).increment();
+        if (now - decreasedAtNanos < decreaseCooldownNanos) {
+            return;
+        }
+        decreasedAtNanos = now;
+        double previous = rate;
+        rate = Math.max(minRate, rate * decreaseFactor);
+        log.warn("Upstream rate reduced after {}: {} -> {} req/s", reason,
+                String.format(Locale.ROOT, "%.2f", previous), String.format(Locale.ROOT, "%.2f", rate));
+    }
+
+    private void enqueue(Waiter waiter) {
+        synchronized (this) {
+            queues.get(waiter.priority).add(waiter);
+            // Уже запланированный проход обслужит и этого ожидающего
+            if (drainScheduled) {
+                return;
+            }
+        }
+        drain();
+    }
+
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        long now;
+        long delayNanos = -1;
+        synchronized (this) {
+            drainScheduled = false;
+            now = System.nanoTime();
+            refill(now);
+
+            Waiter next;
+            while (now >= blockedUntilNanos && tokens >= 1 && (next = pollNext()) != null) {
+                tokens -= 1;
+                granted.add(next);
+            }
+
+            if (queueDepth() > 0) {
+                drainScheduled = true;
+                delayNanos = now < blockedUntilNanos
+                        ? blockedUntilNanos - now
+                        : (long) ((1 - tokens) / rate * 1_000_000_000L);
+            }
+        }
+
+        // Подписчики продолжают работу вне монитора
+        granted.forEach(waiter -> waiter.grant(now));
+        if (delayNanos >= 0) {
+            timer.schedule(this::drain, Math.max(1, TimeUnit.NANOSECONDS.toMillis(delayNanos)), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void remove(Waiter waiter) {
+        queues.get(waiter.priority).remove(waiter);
+    }
+
+    private void scheduleDrain() {
+        synchronized (this) {
+            if (drainScheduled || queueDepth() == 0) {
+                return;
+            }
+        }
+        drain();
+    }
+
+    // Вызывается под монитором this
+    private Waiter pollNext() {
+        for (LookupPriority priority : LookupPriority.values()) {
+            Waiter waiter = queues.get(priority).poll();
+            if (waiter != null) {
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - refilledAtNanos) / 1_000_000_000.0 * rate);
+        refilledAtNanos = now;
+    }
+
+    private synchronized int queueDepth() {
+        int depth = 0;
+        for (Queue<Waiter> queue : queues.values()) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    private synchronized int queueDepth(LookupPriority priority) {
+        return queues.get(priority).size();
+    }
+
+    private final class Waiter {
+
+        private final MonoSink<Void> sink;
+        private final LookupPriority priority;
+        private final long enqueuedAtNanos;
+
+        private Waiter(MonoSink<Void> sink, LookupPriority priority, long enqueuedAtNanos) {
+            this.sink = sink;
+            this.priority = priority;
+            this.enqueuedAtNanos = enqueuedAtNanos;
+        }
+
+        private void grant(long now) {
+            waitTimers.get(priority).record(now - enqueuedAtNanos, TimeUnit.NANOSECONDS);
+            sink.success();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.x5.food.importer;
+
+import java.nio.file.Path;
+
+public enum DumpFormat {
+    // Выгрузка products.jsonl: по документу продукта на строку
+    JSONL,
+    // Выгрузка products.csv: значения через табуляцию, первая строка - заголовок
+    CSV;
+
+    static DumpFormat detect(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return name.endsWith(".csv") || name.endsWith(".tsv") ? CSV : JSONL;
+    }
+}
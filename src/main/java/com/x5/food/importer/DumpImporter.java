@@ -0,0 +1,431 @@
+package com.x5.food.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x5.food.dto.ImportStatusResponse;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.exception.BadRequestException;
+import com.x5.food.repository.ProductBatchRepository;
+import com.x5.food.service.ProductStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Потоковый импорт дампа OpenFoodFacts (JSONL или CSV, можно .gz) в product/barcode.
+ * Один поток распаковывает и режет строки, пакеты строк через ограниченную очередь
+ * разбирают и пишут многострочными INSERT ... ON CONFLICT parallelism потоков - память
+ * не зависит от размера дампа. По контрольной точке прерванный импорт продолжается
+ * с первой незаписанной строки.
+ * Существующие продукты импорт не перезаписывает: штрих-коды, чей SKU занят другим продуктом,
+ * считаются коллизиями. Пакет, прерванный взаимоблокировкой, повторяется.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DumpImporter {
+
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final String DEADLOCK_DETECTED = "40P01";
+    private static final long DEADLOCK_BACKOFF_MILLIS = 50;
+
+    private final ProductStore productStore;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    // Импортировать можно только файлы из этого каталога
+    @Value("${import.dump.directory:import}")
+    private String directory;
+
+    @Value("${import.dump.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${import.dump.parallelism:4}")
+    private int parallelism;
+
+    @Value("${import.dump.checkpoint-interval:10s}")
+    private Duration checkpointInterval;
+
+    @Value("${import.dump.report-interval:10s}")
+    private Duration reportInterval;
+
+    @Value("${import.dump.deadlock-retries:3}")
+    private int deadlockRetries;
+
+    private final AtomicReference<Progress> current = new AtomicReference<>();
+
+    /**
+     * Запускает импорт в фоне; одновременно выполняется не больше одного.
+     */
+    public ImportStatusResponse start(String fileName, DumpFormat format) {
+        Path file = resolve(fileName);
+        DumpFormat effectiveFormat = format != null ? format : DumpFormat.detect(file);
+
+        Progress progress = new Progress(file);
+        Progress previous = current.get();
+        if ((previous != null && previous.state == ImportStatusResponse.State.RUNNING)
+                || !current.compareAndSet(previous, progress)) {
+            throw new BadRequestException("Импорт уже выполняется");
+        }
+
+        Thread.ofPlatform().name("dump-import").start(() -> {
+            try {
+                run(file, effectiveFormat, progress);
+            } catch (Exception e) {
+                log.error("Dump import failed: {}", file, e);
+                progress.finish(e);
+            }
+        });
+        return progress.snapshot();
+    }
+
+    public Optional<ImportStatusResponse> status() {
+        return Optional.ofNullable(current.get()).map(Progress::snapshot);
+    }
+
+    ImportStatusResponse importFile(Path file, DumpFormat format) throws IOException, InterruptedException {
+        Progress progress = new Progress(file);
+        current.set(progress);
+        return run(file, format, progress);
+    }
+
+    private ImportStatusResponse run(Path file, DumpFormat format, Progress progress)
+            throws IOException, InterruptedException {
+        Counter importedCounter = meterRegistry.counter("import.dump.rows", "result", "imported");
+        Counter skippedCounter = meterRegistry.counter("import.dump.rows", "result", "skipped");
+        Counter collisionCounter = meterRegistry.counter("import.dump.rows", "result", "collision");
+        RowCounters counters = new RowCounters(importedCounter, skippedCounter, collisionCounter);
+
+        ImportCheckpoint checkpoint = new ImportCheckpoint(file);
+        long resumeFrom = checkpoint.load();
+        progress.resumedFrom = resumeFrom;
+        if (resumeFrom > 0) {
+            log.info("Resuming import of {} from line {}", file, resumeFrom);
+        }
+
+        DumpRecordMapper mapper = new DumpRecordMapper(objectMapper.getFactory());
+        CommitTracker tracker = new CommitTracker(resumeFrom, checkpoint);
+        BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(parallelism * 2);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("dump-import-worker-", 0).factory());
+
+        try (BufferedReader reader = open(file)) {
+            if (format == DumpFormat.CSV) {
+                String header = reader.readLine();
+                if (header == null) {
+                    throw new BadRequestException("Пустой CSV-дамп: " + file.getFileName());
+                }
+                mapper.readCsvHeader(header);
+            }
+
+            // Распаковать уже записанное все равно нужно, но без разбора и обращений к БД
+            long line = 0;
+            while (line < resumeFrom && reader.readLine() != null) {
+                line++;
+            }
+
+            // Заголовок CSV прочитан до запуска рабочих потоков
+            for (int i = 0; i < parallelism; i++) {
+                workers.execute(() -> work(queue, mapper, format, tracker, progress, counters));
+            }
+
+            long sequence = 0;
+            long nextReport = System.nanoTime() + reportInterval.toNanos();
+            List<String> lines = new ArrayList<>(batchSize);
+            String text;
+            while (!tracker.failed() && (text = reader.readLine()) != null) {
+                lines.add(text);
+                line++;
+                if (lines.size() == batchSize) {
+                    queue.put(new Batch(sequence++, line, lines));
+                    lines = new ArrayList<>(batchSize);
+                }
+                if (System.nanoTime() >= nextReport) {
+                    report(progress);
+                    nextReport = System.nanoTime() + reportInterval.toNanos();
+                }
+            }
+            if (!lines.isEmpty() && !tracker.failed()) {
+                queue.put(new Batch(sequence, line, lines));
+            }
+        } catch (IOException | RuntimeException e) {
+            tracker.fail(e);
+        } finally {
+            // Рабочие потоки после сбоя только вычитывают очередь, поэтому put не зависнет
+            for (int i = 0; i < parallelism; i++) {
+                queue.put(Batch.END);
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        tracker.finish();
+        progress.finish(tracker.failure());
+        ImportStatusResponse status = progress.snapshot();
+        log.info("Import of {} {}: {} lines, {} imported, {} skipped, {} collisions, {} rows/s",
+                file, status.state(), status.linesRead(), status.imported(), status.skipped(), status.collisions(),
+                String.format("%.0f", status.rowsPerSecond()));
+        if (tracker.failure() != null) {
+            log.error("Import of {} stopped at line {}, rerun to resume", file, tracker.committedLines(), tracker.failure());
+        }
+        return status;
+    }
+
+    private void work(BlockingQueue<Batch> queue, DumpRecordMapper mapper, DumpFormat format, CommitTracker tracker,
+                      Progress progress, RowCounters counters) {
+        while (true) {
+            Batch batch;
+            try {
+                batch = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tracker.fail(e);
+                return;
+            }
+            if (batch == Batch.END) {
+                return;
+            }
+            if (tracker.failed()) {
+                continue;
+            }
+
+            try {
+                Map<String, ProductResponse> productsByBarcode = new LinkedHashMap<>();
+                int skipped = 0;
+                for (String line : batch.lines()) {
+                    ProductResponse product = map(mapper, format, line);
+                    if (product == null) {
+                        skipped++;
+                    } else {
+                        productsByBarcode.put(product.barcodes().get(0), product);
+                    }
+                }
+
+                ProductBatchRepository.SaveResult result = importWithRetry(productsByBarcode);
+                // Только вставленные строки: пропущенные ON CONFLICT при повторном импорте не считаются
+                long imported = result.insertedBarcodes();
+
+                progress.linesRead.add(batch.lines().size());
+                progress.imported.add(imported);
+                progress.skipped.add(skipped);
+                progress.collisions.add(result.collisions());
+                counters.imported().increment(imported);
+                counters.skipped().increment(skipped);
+                counters.collisions().increment(result.collisions());
+                tracker.complete(batch.sequence(), batch.endLine());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                tracker.fail(e);
+                return;
+            } catch (IOException | RuntimeException e) {
+                tracker.fail(e);
+            }
+        }
+    }
+
+    // Транзакция пакета откатывается целиком, поэтому его можно повторить как есть
+    private ProductBatchRepository.SaveResult importWithRetry(Map<String, ProductResponse> productsByBarcode)
+            throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return productStore.importAll(productsByBarcode);
+            } catch (RuntimeException e) {
+                if (attempt >= deadlockRetries || !isDeadlock(e)) {
+                    throw e;
+                }
+                log.debug("Import batch deadlocked, retrying: attempt={}", attempt + 1);
+                // Случайная пауза разводит столкнувшиеся пакеты
+                long backoff = DEADLOCK_BACKOFF_MILLIS << attempt;
+                Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+            }
+        }
+    }
+
+    static boolean isDeadlock(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && DEADLOCK_DETECTED.equals(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ProductResponse map(DumpRecordMapper mapper, DumpFormat format, String line) throws IOException {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            return format == DumpFormat.JSONL ? mapper.fromJsonLine(line) : mapper.fromCsvLine(line);
+        } catch (JsonProcessingException e) {
+            // Битая строка дампа - пропускаем, а не останавливаем импорт
+            return null;
+        }
+    }
+
+    private void report(Progress progress) {
+        ImportStatusResponse status = progress.snapshot();
+        log.info("Import of {}: {} lines, {} imported, {} skipped, {} collisions, {} rows/s",
+                status.file(), status.linesRead(), status.imported(), status.skipped(), status.collisions(),
+                String.format("%.0f", status.rowsPerSecond()));
+    }
+
+    private Path resolve(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new BadRequestException("Не указан файл дампа");
+        }
+        Path base = Path.of(directory).toAbsolutePath().normalize();
+        Path file = base.resolve(fileName).normalize();
+        if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+            throw new BadRequestException("Файл дампа не найден: " + fileName);
+        }
+        return file;
+    }
+
+    private static BufferedReader open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (file.getFileName().toString().toLowerCase().endsWith(".gz")) {
+            in = new GZIPInputStream(in, READ_BUFFER_SIZE);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+    }
+
+    private record RowCounters(
+            Counter imported,
+            Counter skipped,
+            Counter collisions
+    ) {
+    }
+
+    private record Batch(
+            long sequence,
+            // Номер последней строки пакета (с 1, без заголовка CSV)
+            long endLine,
+            List<String> lines
+    ) {
+        static final Batch END = new Batch(-1, -1, List.of());
+    }
+
+    /**
+     * Пакеты завершаются не по порядку; в контрольную точку попадает только непрерывный
+     * префикс записанных строк.
+     */
+    private final class CommitTracker {
+
+        private final ImportCheckpoint checkpoint;
+        private final Map<Long, Long> completed = new HashMap<>();
+        private long nextSequence;
+        private long committedLines;
+        private long lastSaveNanos = System.nanoTime();
+        private volatile Throwable failure;
+
+        private CommitTracker(long committedLines, ImportCheckpoint checkpoint) {
+            this.committedLines = committedLines;
+            this.checkpoint = checkpoint;
+        }
+
+        synchronized void complete(long sequence, long endLine) throws IOException {
+            completed.put(sequence, endLine);
+            Long end;
+            while ((end = completed.remove(nextSequence)) != null) {
+                committedLines = end;
+                nextSequence++;
+            }
+            if (System.nanoTime() - lastSaveNanos >= checkpointInterval.toNanos()) {
+                checkpoint.save(committedLines);
+                lastSaveNanos = System.nanoTime();
+            }
+        }
+
+        synchronized long committedLines() {
+            return committedLines;
+        }
+
+        void fail(Throwable e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+
+        boolean failed() {
+            return failure != null;
+        }
+
+        Throwable failure() {
+            return failure;
+        }
+
+        // Успешный импорт убирает точку, прерванный - сохраняет последний непрерывный префикс
+        synchronized void finish() throws IOException {
+            if (failure == null) {
+                checkpoint.delete();
+            } else {
+                checkpoint.save(committedLines);
+            }
+        }
+    }
+
+    private static final class Progress {
+
+        private final Path file;
+        private final Instant startedAt = Instant.now();
+        private final long startedAtNanos = System.nanoTime();
+        private final LongAdder linesRead = new LongAdder();
+        private final LongAdder imported = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private final LongAdder collisions = new LongAdder();
+        private volatile long resumedFrom;
+        private volatile ImportStatusResponse.State state = ImportStatusResponse.State.RUNNING;
+        private volatile Instant finishedAt;
+        private volatile long finishedAtNanos;
+        private volatile String error;
+
+        private Progress(Path file) {
+            this.file = file;
+        }
+
+        void finish(Throwable failure) {
+            finishedAtNanos = System.nanoTime();
+            finishedAt = Instant.now();
+            error = failure != null ? failure.toString() : null;
+            state = failure != null ? ImportStatusResponse.State.FAILED : ImportStatusResponse.State.COMPLETED;
+        }
+
+        ImportStatusResponse snapshot() {
+            long endNanos = finishedAt != null ? finishedAtNanos : System.nanoTime();
+            double seconds = (endNanos - startedAtNanos) / 1e9;
+            long importedRows = imported.sum();
+            return new ImportStatusResponse(file.getFileName().toString(), state, resumedFrom, linesRead.sum(),
+                    importedRows, skipped.sum(), collisions.sum(), seconds > 0 ? importedRows / seconds : 0,
+                    startedAt, finishedAt, error);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.x5.food.importer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.x5.food.barcode.GtinNormalizer;
+import com.x5.food.dto.OpenFoodFactsResponse;
+import com.x5.food.dto.ProductResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Запись дампа OpenFoodFacts -> продукт по тем же правилам, что и ответ API:
+ * {@link ProductResponse#fromExternal}, без имени продукта и с невалидным GTIN запись пропускается.
+ * Из JSONL читаются только поля верхнего уровня, вложенные объекты пропускаются без разбора.
+ */
+final class DumpRecordMapper {
+
+    private static final String CODE = "code";
+    private static final String PRODUCT_NAME = "product_name";
+    private static final String BRANDS = "brands";
+    private static final String QUANTITY = "quantity";
+
+    private final JsonFactory jsonFactory;
+
+    // Позиции колонок CSV из заголовка
+    private int codeColumn = -1;
+    private int nameColumn = -1;
+    private int brandsColumn = -1;
+    private int quantityColumn = -1;
+
+    DumpRecordMapper(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    void readCsvHeader(String header) {
+        List<String> columns = List.of(header.split("\t", -1));
+        codeColumn = columns.indexOf(CODE);
+        nameColumn = columns.indexOf(PRODUCT_NAME);
+        brandsColumn = columns.indexOf(BRANDS);
+        quantityColumn = columns.indexOf(QUANTITY);
+        if (codeColumn < 0 || nameColumn < 0) {
+            throw new IllegalArgumentException("CSV header has no code/product_name columns");
+        }
+    }
+
+    /**
+     * @return null, если запись не годится для импорта
+     */
+    ProductResponse fromJsonLine(String line) throws IOException {
+        String code = null;
+        String name = null;
+        String brands = null;
+        String quantity = null;
+
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case CODE -> code = parser.getValueAsString();
+                    case PRODUCT_NAME -> name = parser.getValueAsString();
+                    case BRANDS -> brands = parser.getValueAsString();
+                    case QUANTITY -> quantity = parser.getValueAsString();
+                    default -> {
+                    }
+                }
+            }
+        }
+        return toProduct(code, name, brands, quantity);
+    }
+
+    ProductResponse fromCsvLine(String line) {
+        String[] columns = line.split("\t", -1);
+        return toProduct(column(columns, codeColumn), column(columns, nameColumn),
+                column(columns, brandsColumn), column(columns, quantityColumn));
+    }
+
+    private static ProductResponse toProduct(String code, String name, String brands, String quantity) {
+        // Те же проверки, что и для ответа API: без штрих-кода или имени продукт не сохраняется
+        if (code == null || name == null || name.isBlank() || GtinNormalizer.normalize(code.trim()) == null) {
+            return null;
+        }
+        OpenFoodFactsResponse response = new OpenFoodFactsResponse(code.trim(),
+                new OpenFoodFactsResponse.Product(name, emptyToNull(quantity), emptyToNull(brands), null));
+        return ProductResponse.fromExternal(response, code.trim());
+    }
+
+    private static String column(String[] columns, int index) {
+        return index >= 0 && index < columns.length ? columns[index] : null;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
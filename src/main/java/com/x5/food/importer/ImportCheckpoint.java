@@ -0,0 +1,61 @@
+package com.x5.food.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Контрольная точка импорта рядом с дампом: сколько строк подряд от начала уже записано в БД.
+ * Привязана к размеру и времени изменения файла - для другого дампа начинаем сначала.
+ * Повторная запись нескольких строк после сбоя безопасна: вставки идемпотентны (ON CONFLICT).
+ */
+final class ImportCheckpoint {
+
+    private static final String SIZE = "size";
+    private static final String MODIFIED = "modified";
+    private static final String LINES = "lines";
+
+    private final Path dump;
+    private final Path file;
+
+    ImportCheckpoint(Path dump) {
+        this.dump = dump;
+        this.file = dump.resolveSibling(dump.getFileName() + ".checkpoint");
+    }
+
+    long load() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        boolean sameDump = String.valueOf(Files.size(dump)).equals(properties.getProperty(SIZE))
+                && String.valueOf(Files.getLastModifiedTime(dump).toMillis()).equals(properties.getProperty(MODIFIED));
+        return sameDump ? Long.parseLong(properties.getProperty(LINES, "0")) : 0;
+    }
+
+    // Запись во временный файл и атомарная замена: прерывание не оставит битую точку
+    void save(long lines) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SIZE, String.valueOf(Files.size(dump)));
+        properties.setProperty(MODIFIED, String.valueOf(Files.getLastModifiedTime(dump).toMillis()));
+        properties.setProperty(LINES, String.valueOf(lines));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, "OpenFoodFacts dump import checkpoint");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,309 @@
+package com.x5.food.index;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Компактный индекс всех штрих-кодов таблицы barcode: Bloom-фильтр и open-addressing множество
+ * ключей long (значение и длина цифрового штрих-кода) - 8 байт на ячейку, без строк.
+ * Отвечает "точно нет в БД", чтобы промахи шли во внешний API без запроса в базу.
+ * Пока индекс не загружен, а также для нецифровых штрих-кодов ответ всегда "возможно есть".
+ * <p>
+ * Записи этого экземпляра попадают в индекс после коммита, записи других экземпляров (в том
+ * числе импорт дампа) - только при следующем {@link #reload()}. До него такой штрих-код считается
+ * отсутствующим и ищется во внешнем API, поэтому ответ "точно нет" не может сам по себе стать
+ * 404 или 503: перед ними поиск перепроверяется в БД ({@link #isKnownAbsent(String)}), а найденная
+ * строка добавляется в индекс. Удаления других экземпляров безопасны: оставшийся ключ стоит
+ * только запроса в БД.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BarcodeIndex {
+
+    static final long NOT_NUMERIC = -1L;
+
+    // Цифровой штрих-код до 14 знаков: значение < 10^14 < 2^47, длина - в младших 4 битах
+    private static final int MAX_DIGITS = 14;
+    private static final int FETCH_SIZE = 10_000;
+    private static final int LATENCY_PROBES = 100_000;
+    // Запас на вставки до следующего перестроения: Bloom-фильтр не растет, множество растет удвоением
+    private static final double GROWTH_HEADROOM = 1.25;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${index.barcode.enabled:true}")
+    private boolean enabled;
+
+    @Value("${index.barcode.off-heap:false}")
+    private boolean offHeap;
+
+    @Value("${index.barcode.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${index.barcode.min-capacity:1000000}")
+    private int minCapacity;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Изменения, пришедшие во время перестроения, доигрываются на новом снимке
+    private final Queue<Change> journal = new ConcurrentLinkedQueue<>();
+    private volatile State state;
+    private boolean loading;
+    private volatile double lookupLatencyNanos;
+
+    private Counter dbSkippedCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        dbSkippedCounter = Counter.builder("barcode.index.db-skipped")
+                .description("Lookups answered as absent without a database query")
+                .register(meterRegistry);
+        Gauge.builder("barcode.index.entries", this, BarcodeIndex::entries)
+                .register(meterRegistry);
+        Gauge.builder("barcode.index.memory", this, BarcodeIndex::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("barcode.index.bytes-per-entry", this, BarcodeIndex::bytesPerEntry)
+                .register(meterRegistry);
+        Gauge.builder("barcode.index.lookup.latency", this, index -> index.lookupLatencyNanos)
+                .baseUnit("nanoseconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return state != null;
+    }
+
+    /**
+     * @return false, только если штрих-кода точно нет в таблице barcode
+     */
+    public boolean mightContain(String barcode) {
+        boolean present = test(barcode);
+        if (!present) {
+            dbSkippedCounter.increment();
+        }
+        return present;
+    }
+
+    /**
+     * То же, что {@code !mightContain}, но без учета в barcode.index.db-skipped: для перепроверки
+     * в БД штрих-кода, поиск которого уже был отсечен индексом.
+     */
+    public boolean isKnownAbsent(String barcode) {
+        return !test(barcode);
+    }
+
+    public void add(String barcode) {
+        apply(new Change(barcode, true));
+    }
+
+    public void remove(String barcode) {
+        apply(new Change(barcode, false));
+    }
+
+    /**
+     * Полное перестроение из БД: при старте и периодически, чтобы подхватить записи
+     * других экземпляров сервиса. Строки читаются курсором, без загрузки всей выборки в память.
+     */
+    @Scheduled(fixedDelayString = "${index.barcode.reload-interval:PT1H}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        Long rows = jdbcTemplate.queryForObject("select count(*) from public.barcode", Long.class);
+        // Ожидаемое число записей, а не размер таблицы: запас на заполнение дает LongHashSet
+        int expected = (int) Math.min(Integer.MAX_VALUE / 4,
+                Math.max(minCapacity, (long) ((rows != null ? rows : 0) * GROWTH_HEADROOM)));
+
+        lock.writeLock().lock();
+        try {
+            journal.clear();
+            loading = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State fresh = new State(expected, falsePositiveRate, offHeap);
+        try {
+            // Курсор PostgreSQL работает только внутри транзакции
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("select barcode from public.barcode");
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) rs -> fresh.apply(encode(rs.getString(1)), true)));
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                loading = false;
+                journal.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.error("Barcode index reload failed, keeping previous snapshot", e);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Change change;
+            while ((change = journal.poll()) != null) {
+                fresh.apply(encode(change.barcode()), change.present());
+            }
+            state = fresh;
+            loading = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        lookupLatencyNanos = measureLookupLatency(fresh);
+        log.info("Barcode index loaded in {} ms: entries={}, memory={} bytes, {} bytes/entry, lookup ~{} ns, offHeap={}",
+                (System.nanoTime() - startedAt) / 1_000_000, entries(), memoryBytes(),
+                String.format("%.1f", bytesPerEntry()), String.format("%.0f", lookupLatencyNanos), offHeap);
+    }
+
+    static long encode(CharSequence barcode) {
+        int length = barcode.length();
+        if (length == 0 || length > MAX_DIGITS) {
+            return NOT_NUMERIC;
+        }
+
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = barcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_NUMERIC;
+            }
+            value = value * 10 + (c - '0');
+        }
+        // Длина в ключе различает "0123" и "123"
+        return (value << 4) | length;
+    }
+
+    long entries() {
+        State current = state;
+        return current != null ? current.keys.size() : 0;
+    }
+
+    long memoryBytes() {
+        State current = state;
+        // Весь индекс: ячейки множества и биты фильтра, других структур у снимка нет
+        return current != null ? current.keys.memoryBytes() + current.bloom.memoryBytes() : 0;
+    }
+
+    double bytesPerEntry() {
+        long entries = entries();
+        return entries > 0 ? (double) memoryBytes() / entries : 0;
+    }
+
+    private boolean test(String barcode) {
+        State current = state;
+        if (current == null) {
+            return true;
+        }
+
+        long key = encode(barcode);
+        if (key == NOT_NUMERIC) {
+            return true;
+        }
+
+        // Bloom-фильтр без блокировок отсекает большую часть промахов
+        boolean present = current.bloom.mightContain(key);
+        if (present) {
+            // Точная проверка: Bloom не умеет удалять и дает ложные срабатывания
+            lock.readLock().lock();
+            try {
+                present = current.keys.contains(key);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return present;
+    }
+
+    private void apply(Change change) {
+        if (!enabled) {
+            return;
+        }
+
+        long key = encode(change.barcode());
+        lock.writeLock().lock();
+        try {
+            if (loading) {
+                journal.add(change);
+            }
+            State current = state;
+            if (current != null) {
+                current.apply(key, change.present());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Средняя цена проверки на случайных ключах (в основном промахи - типичный случай для индекса)
+    private double measureLookupLatency(State snapshot) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int hits = 0;
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < LATENCY_PROBES; i++) {
+            long key = (random.nextLong(100_000_000_000_000L) << 4) | 13;
+            lock.readLock().lock();
+            try {
+                if (snapshot.bloom.mightContain(key) && snapshot.keys.contains(key)) {
+                    hits++;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        double latency = (double) (System.nanoTime() - startedAt) / LATENCY_PROBES;
+        log.debug("Barcode index latency probe: {} hits of {}", hits, LATENCY_PROBES);
+        return latency;
+    }
+
+    private record Change(String barcode, boolean present) {
+    }
+
+    private static final class State {
+
+        private final LongHashSet keys;
+        private final BloomFilter bloom;
+
+        State(int expectedEntries, double falsePositiveRate, boolean offHeap) {
+            this.keys = new LongHashSet(expectedEntries, offHeap);
+            this.bloom = new BloomFilter(expectedEntries, falsePositiveRate);
+        }
+
+        void apply(long key, boolean present) {
+            if (key == NOT_NUMERIC) {
+                return;
+            }
+            if (!present) {
+                keys.remove(key);
+                return;
+            }
+            keys.add(key);
+            bloom.put(key);
+        }
+    }
+}
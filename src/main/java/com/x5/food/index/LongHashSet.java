@@ -0,0 +1,153 @@
+package com.x5.food.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Open-addressing множество long с линейным пробированием без боксинга - по 8 байт на ячейку.
+ * Ключ 0 зарезервирован под пустую ячейку. Хранилище - heap или off-heap (direct) буфер.
+ * Не потокобезопасно, синхронизация - на стороне {@link BarcodeIndex}.
+ */
+final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+    private static final int MAX_CAPACITY = 1 << 28;
+
+    private final boolean offHeap;
+
+    private LongBuffer keys;
+    private int capacity;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    LongHashSet(int expectedEntries, boolean offHeap) {
+        this.offHeap = offHeap;
+        allocate(tableSizeFor(expectedEntries));
+    }
+
+    boolean contains(long key) {
+        int slot = slot(key, mask);
+        while (true) {
+            long current = keys.get(slot);
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    boolean add(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        if (size >= resizeAt) {
+            rehash(capacity << 1);
+        }
+
+        int slot = slot(key, mask);
+        while (true) {
+            long current = keys.get(slot);
+            if (current == EMPTY) {
+                keys.put(slot, key);
+                size++;
+                return true;
+            }
+            if (current == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    boolean remove(long key) {
+        int slot = slot(key, mask);
+        while (true) {
+            long current = keys.get(slot);
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == key) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Backward shift: сдвигаем хвост цепочки, чтобы не оставлять "надгробий"
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            long current = keys.get(next);
+            if (current == EMPTY) {
+                break;
+            }
+            int ideal = slot(current, mask);
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                keys.put(hole, current);
+                hole = next;
+            }
+        }
+        keys.put(hole, EMPTY);
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long memoryBytes() {
+        return (long) capacity * Long.BYTES;
+    }
+
+    private void rehash(int newCapacity) {
+        if (newCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Barcode index capacity exceeded: " + MAX_CAPACITY);
+        }
+
+        LongBuffer oldKeys = keys;
+        int oldCapacity = capacity;
+
+        allocate(newCapacity);
+        size = 0;
+        for (int i = 0; i < oldCapacity; i++) {
+            long key = oldKeys.get(i);
+            if (key != EMPTY) {
+                add(key);
+            }
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+        resizeAt = (int) (newCapacity * LOAD_FACTOR);
+
+        if (offHeap) {
+            keys = ByteBuffer.allocateDirect(newCapacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        } else {
+            keys = LongBuffer.allocate(newCapacity);
+        }
+    }
+
+    // Наименьшая степень двойки, вмещающая expectedEntries без превышения LOAD_FACTOR
+    static int tableSizeFor(int expectedEntries) {
+        long needed = (long) Math.ceil(Math.max(expectedEntries, 16) / (double) LOAD_FACTOR);
+        long tableSize = Long.highestOneBit(needed);
+        if (tableSize < needed) {
+            tableSize <<= 1;
+        }
+        return (int) Math.min(tableSize, MAX_CAPACITY);
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
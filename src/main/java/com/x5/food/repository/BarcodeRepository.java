@@ -22,8 +22,14 @@ public interface BarcodeRepository extends JpaRepository<Barcode, String> {
             values (:barcode, :sku)
             on conflict (barcode) do nothing
             """, nativeQuery = true)
-    void insertBarcodeIfNotExists(@Param("barcode") String barcode, @Param("sku") String sku);
+    int insertBarcodeIfNotExists(@Param("barcode") String barcode, @Param("sku") String sku);
 
     boolean existsByBarcode(String barcode);
 
+    @Query("SELECT b.sku.sku FROM Barcode b WHERE b.barcode = :barcode")
+    Optional<String> findSkuByBarcode(@Param("barcode") String barcode);
+
+    @Query("SELECT COUNT(b) FROM Barcode b WHERE b.sku.sku = :sku")
+    long countBySku(@Param("sku") String sku);
+
 }
\ No newline at end of file
@@ -0,0 +1,249 @@
+package com.x5.food.repository;
+
+import com.x5.food.dto.ProductResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Пакетная запись продуктов и штрих-кодов многострочными INSERT ... ON CONFLICT
+ * и выборки для фоновой перепроверки продуктов по fetched_at.
+ * Строки каждого запроса идут по возрастанию ключа: параллельные пакеты блокируют
+ * общие строки в одном порядке и не взаимоблокируются.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBatchRepository {
+
+    // Ограничение Postgres - не более 65535 параметров на запрос
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сохраняет найденные продукты: upsert в product и insert-if-not-exists в barcode.
+     *
+     * @param productsByBarcode продукт по штрих-коду, для которого он был найден
+     * @return сколько штрих-кодов реально вставлено и сколько SKU получили первый штрих-код
+     */
+    @Transactional
+    public SaveResult saveAll(Map<String, ProductResponse> productsByBarcode) {
+        if (productsByBarcode.isEmpty()) {
+            return SaveResult.EMPTY;
+        }
+
+        // Один SKU не может встречаться дважды в одном ON CONFLICT DO UPDATE
+        Map<String, String> namesBySku = new TreeMap<>();
+        productsByBarcode.values().forEach(product -> namesBySku.put(product.sku(), product.name()));
+
+        executeMultiRow("insert into public.product (sku, name, fetched_at) values ",
+                " on conflict (sku) do update set name = excluded.name, fetched_at = excluded.fetched_at",
+                productRows(namesBySku), null);
+
+        Map<String, String> skusByBarcode = new TreeMap<>();
+        productsByBarcode.forEach((barcode, product) -> skusByBarcode.put(barcode, product.sku()));
+        return insertBarcodes(skusByBarcode, 0);
+    }
+
+    /**
+     * Импорт: в отличие от {@link #saveAll(Map)} существующие продукты не перезаписываются.
+     * SKU строится из последних цифр штрих-кода и может совпасть у разных товаров, поэтому
+     * штрих-код, чей SKU занят продуктом с другим именем, не вставляется и считается коллизией.
+     * Тот же продукт (повторный импорт) коллизией не считается.
+     */
+    @Transactional
+    public SaveResult insertAll(Map<String, ProductResponse> productsByBarcode) {
+        if (productsByBarcode.isEmpty()) {
+            return SaveResult.EMPTY;
+        }
+
+        // В пакете выигрывает первый продукт SKU, как и в БД - уже сохраненный
+        Map<String, String> namesBySku = new TreeMap<>();
+        productsByBarcode.values().forEach(product -> namesBySku.putIfAbsent(product.sku(), product.name()));
+
+        List<String> insertedSkus = new ArrayList<>();
+        executeMultiRow("insert into public.product (sku, name, fetched_at) values ",
+                " on conflict (sku) do nothing returning sku", productRows(namesBySku), insertedSkus);
+
+        Set<String> existingSkus = new HashSet<>(namesBySku.keySet());
+        insertedSkus.forEach(existingSkus::remove);
+        namesBySku.putAll(findNames(existingSkus));
+
+        Map<String, String> skusByBarcode = new TreeMap<>();
+        long collisions = 0;
+        for (Map.Entry<String, ProductResponse> entry : productsByBarcode.entrySet()) {
+            ProductResponse product = entry.getValue();
+            if (Objects.equals(namesBySku.get(product.sku()), product.name())) {
+                skusByBarcode.put(entry.getKey(), product.sku());
+            } else {
+                collisions++;
+            }
+        }
+        return insertBarcodes(skusByBarcode, collisions);
+    }
+
+    /**
+     * Продукты, дольше всего не получавшиеся из OpenFoodFacts (сначала - без fetched_at).
+     *
+     * @return продукты с любым из штрих-кодов SKU, от самого давнего
+     */
+    public List<StaleProduct> findLeastRecentlyFetched(Instant fetchedBefore, int limit) {
+        return jdbcTemplate.query("""
+                        select p.sku, p.name, b.barcode
+                        from public.product p
+                        join lateral (select barcode from public.barcode where sku = p.sku limit 1) b on true
+                        where p.fetched_at is null or p.fetched_at < ?
+                        order by p.fetched_at nulls first
+                        limit ?
+                        """,
+                (rs, rowNum) -> new StaleProduct(rs.getString(1), rs.getString(2), rs.getString(3)),
+                OffsetDateTime.ofInstant(fetchedBefore, ZoneOffset.UTC), limit);
+    }
+
+    /**
+     * Меняет имя существующего SKU и отмечает его перепроверенным. Ни продукт, ни штрих-коды
+     * не создаются: удаленное за время запроса к OpenFoodFacts не возвращается в БД.
+     *
+     * @return false, если SKU уже нет
+     */
+    public boolean updateName(String sku, String name) {
+        return jdbcTemplate.update("update public.product set name = ?, fetched_at = now() where sku = ?",
+                name, sku) > 0;
+    }
+
+    /**
+     * Отмечает SKU перепроверенными без изменения данных - иначе перепроверка выбирала бы их снова.
+     */
+    @Transactional
+    public void markFetched(Collection<String> skus) {
+        List<String> skuList = new ArrayList<>(skus);
+        for (int from = 0; from < skuList.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<String> chunk = skuList.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, skuList.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.update("update public.product set fetched_at = now() where sku in (" + placeholders + ")",
+                    chunk.toArray());
+        }
+    }
+
+    private static List<Object[]> productRows(Map<String, String> namesBySku) {
+        OffsetDateTime fetchedAt = OffsetDateTime.now(ZoneOffset.UTC);
+        List<Object[]> rows = new ArrayList<>(namesBySku.size());
+        namesBySku.forEach((sku, name) -> rows.add(new Object[]{sku, name, fetchedAt}));
+        return rows;
+    }
+
+    private SaveResult insertBarcodes(Map<String, String> skusByBarcode, long collisions) {
+        List<Object[]> rows = new ArrayList<>(skusByBarcode.size());
+        skusByBarcode.forEach((barcode, sku) -> rows.add(new Object[]{barcode, sku}));
+
+        // RETURNING отдает только реально вставленные строки - по ним ведется статистика
+        List<String> insertedSkus = new ArrayList<>();
+        if (!rows.isEmpty()) {
+            executeMultiRow("insert into public.barcode (barcode, sku) values ",
+                    " on conflict (barcode) do nothing returning sku", rows, insertedSkus);
+        }
+        return new SaveResult(insertedSkus.size(), countNewSkus(insertedSkus), collisions);
+    }
+
+    private Map<String, String> findNames(Collection<String> skus) {
+        List<String> skuList = new ArrayList<>(skus);
+        Map<String, String> result = new HashMap<>();
+
+        for (int from = 0; from < skuList.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<String> chunk = skuList.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, skuList.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("select sku, name from public.product where sku in (" + placeholders + ")",
+                    (RowCallbackHandler) rs -> result.put(rs.getString(1), rs.getString(2)),
+                    chunk.toArray());
+        }
+        return result;
+    }
+
+    // SKU новый, если все его штрих-коды вставлены этим пакетом
+    private long countNewSkus(List<String> insertedSkus) {
+        if (insertedSkus.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Long> insertedPerSku = new HashMap<>();
+        insertedSkus.forEach(sku -> insertedPerSku.merge(sku, 1L, Long::sum));
+
+        Map<String, Long> totalPerSku = countBarcodesBySku(insertedPerSku.keySet());
+        return insertedPerSku.entrySet().stream()
+                .filter(entry -> entry.getValue().equals(totalPerSku.get(entry.getKey())))
+                .count();
+    }
+
+    private Map<String, Long> countBarcodesBySku(Collection<String> skus) {
+        List<String> skuList = new ArrayList<>(skus);
+        Map<String, Long> result = new HashMap<>();
+
+        for (int from = 0; from < skuList.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<String> chunk = skuList.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, skuList.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query("select sku, count(*) from public.barcode where sku in (" + placeholders + ") group by sku",
+                    (RowCallbackHandler) rs -> result.put(rs.getString(1), rs.getLong(2)),
+                    chunk.toArray());
+        }
+        return result;
+    }
+
+    private void executeMultiRow(String prefix, String suffix, List<Object[]> rows, List<String> returned) {
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, rows.size()));
+            int width = chunk.get(0).length;
+
+            StringBuilder sql = new StringBuilder(prefix.length() + suffix.length() + chunk.size() * (width * 3 + 4));
+            sql.append(prefix);
+            Object[] args = new Object[chunk.size() * width];
+
+            for (int row = 0; row < chunk.size(); row++) {
+                sql.append(row == 0 ? "(" : ", (");
+                for (int column = 0; column < width; column++) {
+                    sql.append(column == 0 ? "?" : ", ?");
+                    args[row * width + column] = chunk.get(row)[column];
+                }
+                sql.append(')');
+            }
+            sql.append(suffix);
+
+            if (returned != null) {
+                returned.addAll(jdbcTemplate.queryForList(sql.toString(), String.class, args));
+            } else {
+                jdbcTemplate.update(sql.toString(), args);
+            }
+        }
+    }
+
+    public record SaveResult(
+            long insertedBarcodes,
+            long newSkus,
+            // Штрих-коды импорта, пропущенные из-за SKU, занятого другим продуктом
+            long collisions
+    ) {
+        public static final SaveResult EMPTY = new SaveResult(0, 0, 0);
+    }
+
+    public record StaleProduct(
+            String sku,
+            String name,
+            String barcode
+    ) {
+    }
+}
@@ -1,5 +1,7 @@
 package com.x5.food.repository;
 
+import com.x5.food.dto.projection.BarcodeLookupProjection;
+import com.x5.food.dto.projection.ProductProjection;
 import com.x5.food.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -7,6 +9,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,14 +19,35 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     @Query("SELECT p FROM Product p JOIN FETCH p.barcodes WHERE p.sku = :sku")
     Optional<Product> findBySkuWithBarcodes(@Param("sku") String sku);
 
-    @Query("SELECT p FROM Product p JOIN p.barcodes b WHERE b.barcode = :barcode")
-    Optional<Product> findByBarcode(@Param("barcode") String barcode);
+    // Продукт со всеми штрих-кодами SKU одним запросом, без сущности и ленивой коллекции
+    @Query(value = """
+            select p.sku as sku, p.name as name, p.fetched_at as "fetchedAt",
+                   array_agg(s.barcode order by s.barcode) as barcodes
+            from public.barcode b
+            join public.product p on p.sku = b.sku
+            join public.barcode s on s.sku = p.sku
+            where b.barcode = :barcode
+            group by p.sku, p.name, p.fetched_at
+            """, nativeQuery = true)
+    Optional<ProductProjection> findProjectionByBarcode(@Param("barcode") String barcode);
+
+    // Все локальные совпадения пакета одним запросом вместе со всеми штрих-кодами их SKU
+    @Query(value = """
+            select b.barcode as barcode, p.sku as sku, p.name as name, p.fetched_at as "fetchedAt",
+                   array_agg(s.barcode order by s.barcode) as barcodes
+            from public.barcode b
+            join public.product p on p.sku = b.sku
+            join public.barcode s on s.sku = p.sku
+            where b.barcode in (:barcodes)
+            group by b.barcode, p.sku, p.name, p.fetched_at
+            """, nativeQuery = true)
+    List<BarcodeLookupProjection> findAllByBarcodes(@Param("barcodes") Collection<String> barcodes);
 
     @Modifying
     @Query(value = """
-            insert into public.product (sku, name)
-            values (:sku, :name)
-            on conflict (sku) do update set name = excluded.name
+            insert into public.product (sku, name, fetched_at)
+            values (:sku, :name, now())
+            on conflict (sku) do update set name = excluded.name, fetched_at = excluded.fetched_at
             """, nativeQuery = true)
     void upsertProduct(@Param("sku") String sku, @Param("name") String name);
 }
\ No newline at end of file
@@ -1,69 +1,246 @@
 package com.x5.food.service;
 
+import com.x5.food.cache.NegativeLookupCache;
+import com.x5.food.cache.ProductCache;
+import com.x5.food.dto.BarcodeStatisticsResponse;
+import com.x5.food.dto.BatchLookupResponse;
 import com.x5.food.dto.ProductResponse;
-import com.x5.food.dto.projection.BarcodeStatisticProjection;
+import com.x5.food.exception.ExternalServiceUnavailableException;
 import com.x5.food.exception.ResourceNotFoundException;
 import com.x5.food.external.ExternalProductService;
-import com.x5.food.repository.BarcodeRepository;
-import com.x5.food.repository.ProductRepository;
+import com.x5.food.external.LookupPriority;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BarcodeService {
 
-    private final ProductRepository productRepository;
-    private final BarcodeRepository barcodeRepository;
     private final ExternalProductService externalProductService;
+    private final ProductCache productCache;
+    private final NegativeLookupCache negativeLookupCache;
+    private final LookupCoalescer lookupCoalescer;
+    private final ProductStore productStore;
+    private final ProductWriteBehind productWriteBehind;
+    private final BarcodeStatistics barcodeStatistics;
+    private final LookupMetrics lookupMetrics;
+    private final ProductRevalidator productRevalidator;
+
+    @Value("${external.batch.parallelism:8}")
+    private int batchParallelism;
 
-    @Transactional
+    // Без общей транзакции: чтение, внешний вызов и запись - отдельные короткие единицы работы
     public ResponseWithStatus getProductByBarcode(String barcode) {
+        long startedAt = System.nanoTime();
+
+        // Горячие штрих-коды отдаем из кэша без обращения к БД
+        Optional<ProductResponse> cachedProduct = productCache.get(barcode);
+        if (cachedProduct.isPresent()) {
+            refreshAheadIfDue(barcode, cachedProduct.get());
+            lookupMetrics.recordLookup(LookupMetrics.Outcome.CACHE_HIT, startedAt);
+            return new ResponseWithStatus(HttpStatus.OK, cachedProduct.get());
+        }
+
+        // Недавно подтвержденное отсутствие - не ходим ни в БД, ни во внешний API
+        if (negativeLookupCache.isKnownMissing(barcode)) {
+            lookupMetrics.recordLookup(LookupMetrics.Outcome.NOT_FOUND, startedAt);
+            return new ResponseWithStatus(HttpStatus.NOT_FOUND, null);
+        }
+
+        // Одновременные запросы одного штрих-кода делят один поход в БД, внешний API и запись
+        ResponseWithStatus result = lookupCoalescer.execute(barcode, () -> loadProduct(barcode));
+        lookupMetrics.recordLookup(LookupMetrics.Outcome.of(result.status()), startedAt);
+        return result;
+    }
+
+    // Запись близка к истечению и все еще востребована - перепроверяем в фоне, отдавая текущую
+    private void refreshAheadIfDue(String barcode, ProductResponse cachedProduct) {
+        if (productCache.isDueForRefresh(barcode)) {
+            productRevalidator.requestRefresh(barcode, cachedProduct);
+        }
+    }
+
+    private ResponseWithStatus loadProduct(String barcode) {
         // Сначала ищем в локальной базе
-        Optional<ProductResponse> localProduct = productRepository.findByBarcode(barcode)
-                .map(ProductResponse::fromEntity);
+        Optional<ProductStore.StoredProduct> localProduct = productStore.findByBarcode(barcode);
 
         if (localProduct.isPresent()) {
+            // Возраст записи - от получения из OpenFoodFacts, а не от чтения из БД
+            ProductStore.StoredProduct stored = localProduct.get();
+            productCache.put(barcode, stored.product(), stored.fetchedAt());
+            refreshAheadIfDue(barcode, stored.product());
             // Возвращаем 200 OK при получении из БД
-            return new ResponseWithStatus(HttpStatus.OK, localProduct.get());
+            return new ResponseWithStatus(HttpStatus.OK, stored.product());
         }
 
-        // Блокирующий вызов - пока не создан рактивный репозиторий
-        Optional<ProductResponse> optionalProduct = externalProductService.getProductByBarcode(barcode)
-                .block();
+        Optional<ProductResponse> optionalProduct;
+        try {
+            // Блокирующий вызов - пока не создан рактивный репозиторий
+            optionalProduct = externalProductService.getProductByBarcode(barcode)
+                    .block();
+        } catch (ExternalServiceUnavailableException e) {
+            // Сбой внешнего API (или разомкнутая цепь) - отдельный статус, не "не найден", и не кэшируется
+            log.warn("External lookup failed for barcode: {}", barcode);
+            return recheckDatabase(barcode)
+                    .orElseGet(() -> new ResponseWithStatus(HttpStatus.SERVICE_UNAVAILABLE, null));
+        }
 
         if (optionalProduct != null && optionalProduct.isPresent()) {
             ProductResponse productResponse = optionalProduct.get();
             saveToDatabase(productResponse, barcode);
+            productCache.put(barcode, productResponse);
             return new ResponseWithStatus(HttpStatus.CREATED, productResponse);
-        } else {
-            return new ResponseWithStatus(HttpStatus.NOT_FOUND, null);
         }
+
+        Optional<ResponseWithStatus> rechecked = recheckDatabase(barcode);
+        if (rechecked.isPresent()) {
+            return rechecked.get();
+        }
+        negativeLookupCache.markMissing(barcode);
+        return new ResponseWithStatus(HttpStatus.NOT_FOUND, null);
+    }
+
+    // "Точно нет" индекса могло устареть: строку мог записать другой экземпляр или импорт
+    private Optional<ResponseWithStatus> recheckDatabase(String barcode) {
+        return productStore.recheckSkipped(barcode).map(stored -> {
+            productCache.put(barcode, stored.product(), stored.fetchedAt());
+            return new ResponseWithStatus(HttpStatus.OK, stored.product());
+        });
     }
 
     private void saveToDatabase(ProductResponse productResponse, String barcode) {
-        // UPSERT продукта
-        productRepository.upsertProduct(productResponse.sku(), productResponse.name());
+        // В режиме write-behind запись уходит в фоновую очередь, при переполнении - синхронно
+        if (!productWriteBehind.submit(barcode, productResponse)) {
+            long startedAt = System.nanoTime();
+            productStore.save(productResponse, barcode);
+            lookupMetrics.recordPersist(LookupMetrics.PersistMode.SINGLE, startedAt);
+        }
+        // Записи кэша SKU сбрасываются после коммита записи, см. ProductStore
+    }
+
+    public BatchLookupResponse getProductsByBarcodes(List<String> barcodes) {
+        long startedAt = System.nanoTime();
+        Set<String> requested = new LinkedHashSet<>(barcodes);
+        Map<String, BatchLookupResponse.Item> resolved = new HashMap<>();
+        List<String> pending = new ArrayList<>();
+
+        for (String barcode : requested) {
+            Optional<ProductResponse> cachedProduct = productCache.get(barcode);
+            if (cachedProduct.isPresent()) {
+                refreshAheadIfDue(barcode, cachedProduct.get());
+                resolved.put(barcode, BatchLookupResponse.Item.fromDatabase(barcode, cachedProduct.get()));
+            } else if (negativeLookupCache.isKnownMissing(barcode)) {
+                resolved.put(barcode, BatchLookupResponse.Item.notFound(barcode));
+            } else {
+                pending.add(barcode);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            // Все локальные совпадения - одним запросом вместо findByBarcode на каждый штрих-код
+            productStore.findAllByBarcodes(pending).forEach((barcode, stored) -> {
+                productCache.put(barcode, stored.product(), stored.fetchedAt());
+                refreshAheadIfDue(barcode, stored.product());
+                resolved.put(barcode, BatchLookupResponse.Item.fromDatabase(barcode, stored.product()));
+            });
+
+            List<String> misses = pending.stream()
+                    .filter(barcode -> !resolved.containsKey(barcode))
+                    .toList();
+            if (!misses.isEmpty()) {
+                resolveExternally(misses, resolved);
+            }
+        }
+
+        BatchLookupResponse response = new BatchLookupResponse(requested.stream()
+                .map(resolved::get)
+                .toList());
+        lookupMetrics.recordBatch(response, startedAt);
+        return response;
+    }
+
+    private void resolveExternally(List<String> misses, Map<String, BatchLookupResponse.Item> resolved) {
+        // Параллельные запросы во внешний API с ограничением числа одновременных вызовов
+        Map<String, Optional<ProductResponse>> fetched = Flux.fromIterable(misses)
+                .flatMap(barcode -> externalProductService.getProductByBarcode(barcode, LookupPriority.BATCH)
+                                .map(product -> Map.entry(barcode, product))
+                                .onErrorResume(e -> {
+                                    // Сбой по одному штрих-коду не должен ронять весь пакет
+                                    log.warn("External lookup failed for barcode: {}", barcode, e);
+                                    return Mono.empty();
+                                }),
+                        batchParallelism)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+
+        // Перед "не найден" и "недоступен" - перепроверка отсеченных индексом, одним запросом
+        List<String> unresolved = misses.stream()
+                .filter(barcode -> fetched == null || fetched.get(barcode) == null || fetched.get(barcode).isEmpty())
+                .toList();
+        Map<String, ProductStore.StoredProduct> rechecked = unresolved.isEmpty()
+                ? Map.of()
+                : productStore.recheckAllSkipped(unresolved);
+
+        Map<String, ProductResponse> created = new LinkedHashMap<>();
+        for (String barcode : misses) {
+            Optional<ProductResponse> product = fetched != null ? fetched.get(barcode) : null;
+            ProductStore.StoredProduct stored = rechecked.get(barcode);
+            if (stored != null) {
+                productCache.put(barcode, stored.product(), stored.fetchedAt());
+                resolved.put(barcode, BatchLookupResponse.Item.fromDatabase(barcode, stored.product()));
+            } else if (product != null && product.isPresent()) {
+                created.put(barcode, product.get());
+                resolved.put(barcode, BatchLookupResponse.Item.fromExternal(barcode, product.get()));
+            } else if (product != null) {
+                // Отсутствие кэшируем только для подтвержденного "не найден"
+                negativeLookupCache.markMissing(barcode);
+                resolved.put(barcode, BatchLookupResponse.Item.notFound(barcode));
+            } else {
+                resolved.put(barcode, BatchLookupResponse.Item.upstreamUnavailable(barcode));
+            }
+        }
+
+        if (!created.isEmpty()) {
+            long startedAt = System.nanoTime();
+            productStore.saveAll(created);
+            lookupMetrics.recordPersist(LookupMetrics.PersistMode.BATCH, startedAt);
 
-        // INSERT штрих-кода если не существует
-        barcodeRepository.insertBarcodeIfNotExists(barcode, productResponse.sku());
+            // Записи SKU уже сброшены после коммита - кладем свежие
+            created.forEach(productCache::put);
+        }
+    }
+
+    // O(1): счетчики ведутся на путях вставки и удаления
+    public BarcodeStatisticsResponse getBarcodeAndSkuCounts() {
+        return barcodeStatistics.snapshot();
     }
 
-    public Optional<BarcodeStatisticProjection> getBarcodeAndSkuCounts() {
-        return barcodeRepository.getBarcodeStatistics();
+    public BarcodeStatisticsResponse recomputeBarcodeAndSkuCounts() {
+        return barcodeStatistics.recompute();
     }
 
     public void deleteBarcodeById(String barcode) {
-        if (!barcodeRepository.existsByBarcode(barcode)) {
-            throw new ResourceNotFoundException("Штрих-код не найден");
-        }
-        barcodeRepository.deleteById(barcode);
+        String sku = productStore.delete(barcode)
+                .orElseThrow(() -> new ResourceNotFoundException("Штрих-код не найден"));
+
+        // Записи кэша, перечисляющие удаленный штрих-код, принадлежат его SKU
+        productCache.evictSku(sku);
     }
 
     // Вспомогательный класс для возврата статуса и данных
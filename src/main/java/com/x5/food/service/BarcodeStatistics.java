@@ -0,0 +1,72 @@
+package com.x5.food.service;
+
+import com.x5.food.dto.BarcodeStatisticsResponse;
+import com.x5.food.dto.projection.BarcodeStatisticProjection;
+import com.x5.food.repository.BarcodeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики штрих-кодов и SKU, которые ведутся на путях вставки и удаления вместо
+ * COUNT по всей таблице на каждый запрос. Периодическая сверка убирает накопившийся дрейф
+ * (откаты транзакций, записи других экземпляров сервиса).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BarcodeStatistics {
+
+    private final BarcodeRepository barcodeRepository;
+
+    private final AtomicLong barcodesCount = new AtomicLong();
+    private final AtomicLong skuCount = new AtomicLong();
+    private volatile Instant reconciledAt;
+
+    @Value("${statistics.reconcile-interval:PT10M}")
+    private Duration reconcileInterval;
+
+    public BarcodeStatisticsResponse snapshot() {
+        return new BarcodeStatisticsResponse(barcodesCount.get(), skuCount.get(),
+                reconciledAt, reconcileInterval.toSeconds());
+    }
+
+    @Scheduled(fixedDelayString = "${statistics.reconcile-interval:PT10M}")
+    public void reconcile() {
+        recompute();
+    }
+
+    // Полный пересчет - тот же COUNT, что раньше выполнялся на каждый запрос
+    public synchronized BarcodeStatisticsResponse recompute() {
+        Instant startedAt = Instant.now();
+        BarcodeStatisticProjection statistics = barcodeRepository.getBarcodeStatistics().orElse(null);
+
+        long barcodes = statistics != null && statistics.getBarcodesCount() != null ? statistics.getBarcodesCount() : 0;
+        long skus = statistics != null && statistics.getSkuCount() != null ? statistics.getSkuCount() : 0;
+
+        long barcodeDrift = barcodes - barcodesCount.getAndSet(barcodes);
+        long skuDrift = skus - skuCount.getAndSet(skus);
+        reconciledAt = startedAt;
+
+        if (barcodeDrift != 0 || skuDrift != 0) {
+            log.info("Barcode statistics reconciled: barcodes drift={}, sku drift={}", barcodeDrift, skuDrift);
+        }
+        return snapshot();
+    }
+
+    public void recordInserted(long barcodes, long newSkus) {
+        barcodesCount.addAndGet(barcodes);
+        skuCount.addAndGet(newSkus);
+    }
+
+    public void recordDeleted(long barcodes, long removedSkus) {
+        barcodesCount.addAndGet(-barcodes);
+        skuCount.addAndGet(-removedSkus);
+    }
+}
@@ -0,0 +1,153 @@
+package com.x5.food.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.x5.food.cache.CacheWarmup;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.CompositeHealth;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.actuate.info.InfoEndpoint;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Состояние сервиса для /health, собранное из health- и info-контрибьюторов actuator
+ * внутри процесса. Снимок обновляется в фоне, проба получает готовый неизменяемый объект.
+ * Если снимок старше max-staleness (например, планировщик занят), его обновляет первый
+ * пришедший запрос, остальные в это время получают предыдущий.
+ * Пока кэш прогревается из снимка, статус - WARMING_UP, готовность читается без снимка.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HealthSnapshotService {
+
+    private static final double MEGABYTES = 1024.0 * 1024.0;
+
+    private final HealthEndpoint healthEndpoint;
+    private final InfoEndpoint infoEndpoint;
+    private final ObjectMapper objectMapper;
+    private final CacheWarmup cacheWarmup;
+
+    @Value("${health.snapshot.max-staleness:30s}")
+    private Duration maxStaleness;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public boolean isReady() {
+        return cacheWarmup.isReady();
+    }
+
+    public JsonNode current() {
+        Snapshot current = snapshot;
+        // Снимок времен прогрева не должен пережить его окончание
+        if (current == null || current.warmingUp() && cacheWarmup.isReady()
+                || System.nanoTime() - current.takenAtNanos() >= maxStaleness.toNanos()) {
+            if (refreshLock.tryLock()) {
+                try {
+                    current = refreshLocked();
+                } finally {
+                    refreshLock.unlock();
+                }
+            } else if (current == null) {
+                // Первый снимок еще строится: ждем его, отдавать нечего
+                refreshLock.lock();
+                try {
+                    current = snapshot;
+                } finally {
+                    refreshLock.unlock();
+                }
+            }
+        }
+        return current.body();
+    }
+
+    @Scheduled(fixedDelayString = "${health.snapshot.refresh-interval:PT5S}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            refreshLocked();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Snapshot refreshLocked() {
+        boolean warmingUp = !cacheWarmup.isReady();
+        Snapshot fresh = new Snapshot(build(warmingUp), System.nanoTime(), warmingUp);
+        snapshot = fresh;
+        return fresh;
+    }
+
+    private JsonNode build(boolean warmingUp) {
+        ObjectNode response = objectMapper.createObjectNode();
+
+        response.putObject("os")
+                .put("name", System.getProperty("os.name"))
+                .put("version", System.getProperty("os.version"))
+                .put("arch", System.getProperty("os.arch"));
+
+        response.putObject("jvm")
+                .put("processors", Runtime.getRuntime().availableProcessors())
+                .put("total_memory_mb", String.format("%.2f", Runtime.getRuntime().totalMemory() / MEGABYTES))
+                .put("max_memory_mb", String.format("%.2f", Runtime.getRuntime().maxMemory() / MEGABYTES));
+
+        try {
+            Object app = infoEndpoint.info().get("app");
+            if (app != null) {
+                response.set("app", objectMapper.valueToTree(app));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cannot read application info for health snapshot", e);
+        }
+
+        response.set("database", databaseStatus());
+        response.putObject("cache_warmup")
+                .put("state", cacheWarmup.getState().name())
+                .put("source", cacheWarmup.getSource())
+                .put("loaded", cacheWarmup.getLoaded())
+                .put("total", cacheWarmup.getTotal())
+                .put("progress_percent", cacheWarmup.getProgressPercent());
+        response.put("status", warmingUp ? "WARMING_UP" : "OK");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return response;
+    }
+
+    private JsonNode databaseStatus() {
+        ObjectNode dbStatus = objectMapper.createObjectNode();
+        try {
+            HealthComponent overall = healthEndpoint.health();
+            dbStatus.put("overall_status", overall.getStatus().getCode());
+
+            // Индикатор db уже выполнен в составе общего ответа - второй запрос проверки к БД не нужен
+            HealthComponent db = overall instanceof CompositeHealth composite && composite.getComponents() != null
+                    ? composite.getComponents().get("db")
+                    : null;
+            if (db != null) {
+                dbStatus.put("db_status", db.getStatus().getCode());
+                dbStatus.put("connected", Status.UP.equals(db.getStatus()));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cannot read health for health snapshot", e);
+            dbStatus.put("error", "Cannot extract DB status");
+        }
+        return dbStatus;
+    }
+
+    private record Snapshot(
+            JsonNode body,
+            long takenAtNanos,
+            boolean warmingUp
+    ) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.x5.food.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight для поиска по штрих-коду: параллельные запросы одного штрих-кода
+ * ждут результат первого запроса вместо собственного похода в БД и внешний API.
+ * Блокирующий и реактивный пути делят одну таблицу запросов в полете.
+ */
+@Component
+public class LookupCoalescer {
+
+    private final ConcurrentMap<String, CompletableFuture<BarcodeService.ResponseWithStatus>> inFlight =
+            new ConcurrentHashMap<>();
+
+    private final Counter executedCounter;
+    private final Counter coalescedCounter;
+
+    public LookupCoalescer(MeterRegistry meterRegistry) {
+        this.executedCounter = Counter.builder("barcode.lookup.executed")
+                .description("Lookups that performed the upstream fetch themselves")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("barcode.lookup.coalesced")
+                .description("Lookups that joined an in-flight lookup of the same barcode")
+                .register(meterRegistry);
+        Gauge.builder("barcode.lookup.in-flight", inFlight, Map::size)
+                .description("Distinct barcodes currently being looked up")
+                .register(meterRegistry);
+    }
+
+    public BarcodeService.ResponseWithStatus execute(String barcode,
+                                                     Supplier<BarcodeService.ResponseWithStatus> loader) {
+        CompletableFuture<BarcodeService.ResponseWithStatus> own = new CompletableFuture<>();
+        CompletableFuture<BarcodeService.ResponseWithStatus> existing = inFlight.putIfAbsent(barcode, own);
+
+        if (existing != null) {
+            coalescedCounter.increment();
+            return await(existing);
+        }
+
+        executedCounter.increment();
+        try {
+            BarcodeService.ResponseWithStatus result = loader.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(barcode, own);
+        }
+    }
+
+    /**
+     * Реактивный вариант {@link #execute(String, Supplier)}: ожидающие не блокируют поток.
+     * Загрузка подписывается независимо от вызывающих - отмена одного из них не прерывает
+     * ее для остальных.
+     */
+    public Mono<BarcodeService.ResponseWithStatus> executeReactive(
+            String barcode, Supplier<Mono<BarcodeService.ResponseWithStatus>> loader) {
+        return Mono.defer(() -> {
+            CompletableFuture<BarcodeService.ResponseWithStatus> own = new CompletableFuture<>();
+            CompletableFuture<BarcodeService.ResponseWithStatus> existing = inFlight.putIfAbsent(barcode, own);
+
+            if (existing != null) {
+                coalescedCounter.increment();
+                return Mono.fromFuture(existing, true);
+            }
+
+            executedCounter.increment();
+            Mono.defer(loader)
+                    .doFinally(signal -> inFlight.remove(barcode, own))
+                    .subscribe(own::complete, own::completeExceptionally, () -> own.complete(null));
+            return Mono.fromFuture(own, true);
+        });
+    }
+
+    private BarcodeService.ResponseWithStatus await(CompletableFuture<BarcodeService.ResponseWithStatus> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Ожидающие получают то же исключение, что и выполнивший запрос
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
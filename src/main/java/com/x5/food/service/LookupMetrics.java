@@ -0,0 +1,103 @@
+package com.x5.food.service;
+
+import com.x5.food.dto.BatchLookupResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики пути поиска: откуда пришел ответ и сколько это стоило, плюс время записи в БД.
+ * Все таймеры регистрируются заранее - на горячем пути только запись значения.
+ */
+@Component
+public class LookupMetrics {
+
+    public enum Outcome {
+        CACHE_HIT, DB_HIT, EXTERNAL_CREATED, NOT_FOUND, UPSTREAM_ERROR;
+
+        static Outcome of(HttpStatus status) {
+            return switch (status) {
+                case OK -> DB_HIT;
+                case CREATED -> EXTERNAL_CREATED;
+                case SERVICE_UNAVAILABLE -> UPSTREAM_ERROR;
+                default -> NOT_FOUND;
+            };
+        }
+
+        // В пакетном ответе попадания в кэш не отличаются от БД - оба DB
+        static Outcome of(BatchLookupResponse.Source source) {
+            return switch (source) {
+                case DB -> DB_HIT;
+                case EXTERNAL -> EXTERNAL_CREATED;
+                case UPSTREAM_UNAVAILABLE -> UPSTREAM_ERROR;
+                case NOT_FOUND -> NOT_FOUND;
+            };
+        }
+    }
+
+    public enum PersistMode {
+        SINGLE, BATCH
+    }
+
+    private final Map<Outcome, Timer> lookupTimers = new EnumMap<>(Outcome.class);
+    private final Map<Outcome, Counter> batchItemCounters = new EnumMap<>(Outcome.class);
+    private final Map<PersistMode, Timer> persistTimers = new EnumMap<>(PersistMode.class);
+    private final Timer batchTimer;
+    private final DistributionSummary batchSize;
+
+    public LookupMetrics(MeterRegistry meterRegistry) {
+        for (Outcome outcome : Outcome.values()) {
+            lookupTimers.put(outcome, Timer.builder("barcode.lookup")
+                    .description("Latency of a single barcode lookup by where the answer came from")
+                    .tag("outcome", tagValue(outcome))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            batchItemCounters.put(outcome, Counter.builder("barcode.lookup.batch.items")
+                    .description("Barcodes resolved by batch lookups by where the answer came from")
+                    .tag("outcome", tagValue(outcome))
+                    .register(meterRegistry));
+        }
+        for (PersistMode mode : PersistMode.values()) {
+            persistTimers.put(mode, Timer.builder("barcode.persist")
+                    .description("Latency of persisting products found in OpenFoodFacts")
+                    .tag("mode", tagValue(mode))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        batchTimer = Timer.builder("barcode.lookup.batch")
+                .description("Latency of a whole batch lookup")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        batchSize = DistributionSummary.builder("barcode.lookup.batch.size")
+                .description("Distinct barcodes per batch lookup")
+                .register(meterRegistry);
+    }
+
+    void recordLookup(Outcome outcome, long startedAtNanos) {
+        lookupTimers.get(outcome).record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordBatch(BatchLookupResponse response, long startedAtNanos) {
+        batchTimer.record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+        batchSize.record(response.items().size());
+        for (BatchLookupResponse.Item item : response.items()) {
+            batchItemCounters.get(Outcome.of(item.source())).increment();
+        }
+    }
+
+    void recordPersist(PersistMode mode, long startedAtNanos) {
+        persistTimers.get(mode).record(System.nanoTime() - startedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,269 @@
+package com.x5.food.service;
+
+import com.x5.food.cache.ProductCache;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.external.ExternalProductService;
+import com.x5.food.external.LookupPriority;
+import com.x5.food.repository.ProductBatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Фоновая перепроверка сохраненных продуктов в OpenFoodFacts: изменения имени доходят
+ * до БД и кэша, а задержка внешнего API не попадает на путь запроса.
+ * <ul>
+ *     <li>refresh-ahead - запрошенная запись кэша старше refresh-after ставится в очередь,
+ *     вызывающий получает текущее значение;</li>
+ *     <li>sweeper - в окно низкой нагрузки перепроверяет строки с самым давним fetched_at.</li>
+ * </ul>
+ * Оба пути делят общий темп (rate обращений в секунду) и идут с приоритетом BATCH.
+ * Отсутствие продукта в OpenFoodFacts локальные данные не удаляет.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductRevalidator {
+
+    private final ExternalProductService externalProductService;
+    private final ProductStore productStore;
+    private final ProductCache productCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${revalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${revalidation.rate:5}")
+    private double rate;
+
+    @Value("${revalidation.queue-size:1000}")
+    private int queueSize;
+
+    @Value("${revalidation.sweep.max-age:30d}")
+    private Duration sweepMaxAge;
+
+    @Value("${revalidation.sweep.batch-size:100}")
+    private int sweepBatchSize;
+
+    @Value("${revalidation.sweep.max-duration:2h}")
+    private Duration sweepMaxDuration;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Штрих-коды в очереди или в работе - повторные попадания в кэш не дублируют запрос
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private BlockingQueue<Refresh> queue;
+    private Thread worker;
+    private volatile boolean running;
+    private long nextPermitNanos;
+
+    private Counter droppedCounter;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueSize);
+        droppedCounter = Counter.builder("product.revalidation.dropped")
+                .description("Refresh-ahead requests dropped because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("product.revalidation.queue.depth", queue, BlockingQueue::size)
+                .description("Products waiting for background revalidation")
+                .register(meterRegistry);
+
+        running = true;
+        worker = threadBuilder().name("product-refresh-ahead").start(this::run);
+        log.info("Product revalidation started: rate={}/s, queueSize={}", rate, queueSize);
+    }
+
+    /**
+     * Планирует перепроверку записи кэша, которую только что отдали вызывающему.
+     *
+     * @return false, если перепроверка выключена, уже запланирована или очередь заполнена
+     */
+    public boolean requestRefresh(String barcode, ProductResponse current) {
+        if (!running || !pending.add(barcode)) {
+            return false;
+        }
+        if (queue.offer(new Refresh(barcode, current))) {
+            return true;
+        }
+        pending.remove(barcode);
+        droppedCounter.increment();
+        return false;
+    }
+
+    /**
+     * Запускает проход sweeper в отдельном потоке, чтобы не занимать поток планировщика.
+     */
+    @Scheduled(cron = "${revalidation.sweep.cron:0 0 3 * * *}")
+    public void sweep() {
+        if (!enabled || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        threadBuilder().name("product-revalidation-sweep").start(() -> {
+            try {
+                runSweep();
+            } finally {
+                sweeping.set(false);
+            }
+        });
+    }
+
+    void runSweep() {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + sweepMaxDuration.toNanos();
+        Instant fetchedBefore = Instant.now().minus(sweepMaxAge);
+        int revalidated = 0;
+
+        try {
+            sweep:
+            while (System.nanoTime() < deadline) {
+                List<ProductBatchRepository.StaleProduct> batch =
+                        productStore.findLeastRecentlyFetched(fetchedBefore, sweepBatchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                for (ProductBatchRepository.StaleProduct stale : batch) {
+                    if (System.nanoTime() >= deadline) {
+                        break sweep;
+                    }
+                    awaitPermit();
+                    ProductResponse current = new ProductResponse(stale.sku(), stale.name(), List.of(stale.barcode()));
+                    if (revalidate(stale.barcode(), current, "sweep") == null) {
+                        // OpenFoodFacts недоступен - не расходуем окно на заведомые отказы
+                        log.warn("Product revalidation sweep stopped: external service unavailable");
+                        break sweep;
+                    }
+                    revalidated++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Product revalidation sweep failed", e);
+        }
+
+        log.info("Product revalidation sweep finished in {} s: revalidated={}",
+                (System.nanoTime() - startedAt) / 1_000_000_000, revalidated);
+    }
+
+    private void run() {
+        while (running) {
+            Refresh refresh;
+            try {
+                refresh = queue.take();
+                awaitPermit();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                ProductResponse product = revalidate(refresh.barcode(), refresh.current(), "refresh_ahead");
+                if (product != null) {
+                    // Новое время получения - запись снова свежая; удаленную не возвращаем
+                    productCache.replace(refresh.barcode(), product);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Refresh-ahead failed for barcode: {}", refresh.barcode(), e);
+            } finally {
+                pending.remove(refresh.barcode());
+            }
+        }
+    }
+
+    /**
+     * @return актуальный продукт или null, если OpenFoodFacts недоступен
+     */
+    ProductResponse revalidate(String barcode, ProductResponse current, String trigger) {
+        Optional<ProductResponse> fetched;
+        try {
+            fetched = externalProductService.getProductByBarcode(barcode, LookupPriority.BATCH).block();
+        } catch (RuntimeException e) {
+            log.debug("Revalidation lookup failed for barcode: {}", barcode, e);
+            count(trigger, "unavailable");
+            return null;
+        }
+
+        if (fetched == null || fetched.isEmpty() || Objects.equals(fetched.get().name(), current.name())) {
+            productStore.markFetched(Set.of(current.sku()));
+            count(trigger, fetched == null || fetched.isEmpty() ? "not_found" : "unchanged");
+            return current;
+        }
+
+        // SKU и штрих-коды остаются локальными, из OpenFoodFacts берется только имя.
+        // Только UPDATE по SKU: upsert вернул бы штрих-код, удаленный за время запроса
+        ProductResponse updated = new ProductResponse(current.sku(), fetched.get().name(), current.barcodes());
+        boolean exists = productStore.updateName(current.sku(), updated.name());
+        productCache.evictSku(current.sku());
+        if (!exists) {
+            count(trigger, "deleted");
+            return current;
+        }
+        count(trigger, "updated");
+        log.info("Product {} renamed upstream: '{}' -> '{}'", current.sku(), current.name(), updated.name());
+        return updated;
+    }
+
+    // Равномерный темп на оба пути: следующий слот не раньше 1/rate после предыдущего
+    private void awaitPermit() throws InterruptedException {
+        long intervalNanos = (long) (1_000_000_000L / rate);
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextPermitNanos);
+            nextPermitNanos = slot + intervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void count(String trigger, String outcome) {
+        meterRegistry.counter("product.revalidation", "trigger", trigger, "outcome", outcome).increment();
+    }
+
+    private Thread.Builder threadBuilder() {
+        return virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            // Перепроверка необязательна - оставшуюся очередь не дочищаем
+            worker.interrupt();
+        }
+    }
+
+    private record Refresh(
+            String barcode,
+            ProductResponse current
+    ) {
+    }
+}
@@ -0,0 +1,229 @@
+package com.x5.food.service;
+
+import com.x5.food.cache.NegativeLookupCache;
+import com.x5.food.cache.ProductCache;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.dto.projection.BarcodeLookupProjection;
+import com.x5.food.dto.projection.ProductProjection;
+import com.x5.food.index.BarcodeIndex;
+import com.x5.food.repository.BarcodeRepository;
+import com.x5.food.repository.ProductBatchRepository;
+import com.x5.food.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Короткие транзакции поиска: чтение и запись идут отдельными единицами работы,
+ * поэтому соединение из пула не удерживается на время обращения к внешнему API.
+ * Все вставки и удаления штрих-кодов проходят здесь и обновляют {@link BarcodeStatistics}
+ * и {@link BarcodeIndex}; чтения не идут в БД, если индекс знает, что штрих-кода там нет.
+ * После коммита записи сбрасываются записи кэша ее SKU и отрицательный кэш ее штрих-кодов -
+ * не раньше, иначе поиск до коммита закэширует старое состояние.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductStore {
+
+    private final ProductRepository productRepository;
+    private final BarcodeRepository barcodeRepository;
+    private final ProductBatchRepository productBatchRepository;
+    private final BarcodeStatistics barcodeStatistics;
+    private final BarcodeIndex barcodeIndex;
+    private final ProductCache productCache;
+    private final NegativeLookupCache negativeLookupCache;
+
+    // Один SQL-запрос сразу в неизменяемый DTO: без прокси, dirty checking и второго запроса за штрих-кодами
+    public Optional<StoredProduct> findByBarcode(String barcode) {
+        if (!barcodeIndex.mightContain(barcode)) {
+            return Optional.empty();
+        }
+        return productRepository.findProjectionByBarcode(barcode)
+                .map(StoredProduct::fromProjection);
+    }
+
+    /**
+     * @return найденные в БД продукты по штрих-коду запроса
+     */
+    public Map<String, StoredProduct> findAllByBarcodes(Collection<String> barcodes) {
+        List<String> candidates = barcodes.stream()
+                .filter(barcodeIndex::mightContain)
+                .toList();
+
+        Map<String, StoredProduct> found = new LinkedHashMap<>();
+        if (candidates.isEmpty()) {
+            return found;
+        }
+        for (BarcodeLookupProjection row : productRepository.findAllByBarcodes(candidates)) {
+            found.put(row.getBarcode(), StoredProduct.fromProjection(row));
+        }
+        return found;
+    }
+
+    /**
+     * Перепроверка перед ответом 404 или 503: индекс не знает строк других экземпляров до
+     * следующего {@link BarcodeIndex#reload()}. Запрос идет, только если поиск был отсечен
+     * индексом - иначе БД уже ответила.
+     */
+    public Optional<StoredProduct> recheckSkipped(String barcode) {
+        if (!barcodeIndex.isKnownAbsent(barcode)) {
+            return Optional.empty();
+        }
+        Optional<StoredProduct> found = productRepository.findProjectionByBarcode(barcode)
+                .map(StoredProduct::fromProjection);
+        // Строка другого экземпляра: следующие поиски идут в БД без перепроверки
+        found.ifPresent(stored -> barcodeIndex.add(barcode));
+        return found;
+    }
+
+    /**
+     * Пакетный вариант {@link #recheckSkipped(String)} - одним запросом.
+     */
+    public Map<String, StoredProduct> recheckAllSkipped(Collection<String> barcodes) {
+        List<String> skipped = barcodes.stream()
+                .filter(barcodeIndex::isKnownAbsent)
+                .toList();
+
+        Map<String, StoredProduct> found = new LinkedHashMap<>();
+        if (skipped.isEmpty()) {
+            return found;
+        }
+        for (BarcodeLookupProjection row : productRepository.findAllByBarcodes(skipped)) {
+            found.put(row.getBarcode(), StoredProduct.fromProjection(row));
+            barcodeIndex.add(row.getBarcode());
+        }
+        return found;
+    }
+
+    @Transactional
+    public void save(ProductResponse productResponse, String barcode) {
+        // UPSERT продукта
+        productRepository.upsertProduct(productResponse.sku(), productResponse.name());
+
+        // INSERT штрих-кода если не существует
+        int inserted = barcodeRepository.insertBarcodeIfNotExists(barcode, productResponse.sku());
+        if (inserted > 0) {
+            // Первый штрих-код SKU добавляет SKU в статистику
+            long newSkus = barcodeRepository.countBySku(productResponse.sku()) == 1 ? 1 : 0;
+            // Счетчики - только после коммита: откат не должен оставлять их завышенными
+            afterCommit(() -> barcodeStatistics.recordInserted(inserted, newSkus));
+        }
+        // И при конфликте: штрих-код мог быть вставлен другим экземпляром сервиса
+        afterCommit(() -> {
+            barcodeIndex.add(barcode);
+            // Upsert меняет имя и состав штрих-кодов SKU
+            productCache.evictSku(productResponse.sku());
+            negativeLookupCache.invalidate(barcode);
+        });
+    }
+
+    public void saveAll(Map<String, ProductResponse> productsByBarcode) {
+        ProductBatchRepository.SaveResult result = productBatchRepository.saveAll(productsByBarcode);
+        afterCommit(() -> {
+            barcodeStatistics.recordInserted(result.insertedBarcodes(), result.newSkus());
+            productsByBarcode.keySet().forEach(barcodeIndex::add);
+            productCache.evictSkus(skusOf(productsByBarcode));
+            productsByBarcode.keySet().forEach(negativeLookupCache::invalidate);
+        });
+    }
+
+    /**
+     * Импорт без перезаписи существующих продуктов, см. {@link ProductBatchRepository#insertAll(Map)}.
+     */
+    public ProductBatchRepository.SaveResult importAll(Map<String, ProductResponse> productsByBarcode) {
+        ProductBatchRepository.SaveResult result = productBatchRepository.insertAll(productsByBarcode);
+        afterCommit(() -> {
+            barcodeStatistics.recordInserted(result.insertedBarcodes(), result.newSkus());
+            // Лишний штрих-код коллизии в индексе стоит только одного запроса к БД при поиске
+            productsByBarcode.keySet().forEach(barcodeIndex::add);
+            // Новые штрих-коды существующего SKU меняют его состав; недавние 404 больше не верны
+            productCache.evictSkus(skusOf(productsByBarcode));
+            productsByBarcode.keySet().forEach(negativeLookupCache::invalidate);
+        });
+        return result;
+    }
+
+    public List<ProductBatchRepository.StaleProduct> findLeastRecentlyFetched(Instant fetchedBefore, int limit) {
+        return productBatchRepository.findLeastRecentlyFetched(fetchedBefore, limit);
+    }
+
+    public void markFetched(Collection<String> skus) {
+        productBatchRepository.markFetched(skus);
+    }
+
+    /**
+     * @return false, если SKU уже удален
+     */
+    public boolean updateName(String sku, String name) {
+        return productBatchRepository.updateName(sku, name);
+    }
+
+    /**
+     * @return SKU удаленного штрих-кода или пусто, если штрих-кода нет
+     */
+    @Transactional
+    public Optional<String> delete(String barcode) {
+        Optional<String> sku = barcodeRepository.findSkuByBarcode(barcode);
+        if (sku.isEmpty()) {
+            return sku;
+        }
+
+        barcodeRepository.deleteById(barcode);
+
+        // Последний штрих-код SKU убирает SKU из статистики
+        long removedSkus = barcodeRepository.countBySku(sku.get()) == 0 ? 1 : 0;
+        afterCommit(() -> {
+            barcodeStatistics.recordDeleted(1, removedSkus);
+            barcodeIndex.remove(barcode);
+        });
+        return sku;
+    }
+
+    private static Set<String> skusOf(Map<String, ProductResponse> productsByBarcode) {
+        Set<String> skus = new LinkedHashSet<>();
+        productsByBarcode.values().forEach(product -> skus.add(product.sku()));
+        return skus;
+    }
+
+    /**
+     * Продукт из БД вместе со временем его получения из OpenFoodFacts - от него, а не от
+     * момента чтения, считается возраст записи кэша для refresh-ahead.
+     */
+    public record StoredProduct(
+            ProductResponse product,
+            Instant fetchedAt
+    ) {
+        static StoredProduct fromProjection(ProductProjection projection) {
+            // Строки до появления fetched_at не перепроверялись - считаем их давно полученными
+            Instant fetchedAt = projection.getFetchedAt();
+            return new StoredProduct(ProductResponse.fromProjection(projection),
+                    fetchedAt != null ? fetchedAt : Instant.EPOCH);
+        }
+    }
+
+    // Индекс и счетчики меняем только после фиксации, иначе откат оставит их рассогласованными
+    // с БД. Вне транзакции (пакетные методы репозитория коммитят сами) действие выполняется сразу
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,248 @@
+package com.x5.food.service;
+
+import com.x5.food.dto.ProductResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись найденных продуктов: запрос получает ответ сразу, а фоновый поток
+ * сбрасывает накопленное многострочными INSERT ... ON CONFLICT по размеру пакета или по времени.
+ * Если очередь заполнена дольше offer-timeout, вызывающий пишет синхронно (backpressure).
+ * Неудачный пакет повторяется с паузой, а затем пишется по одной строке - временный сбой БД
+ * не теряет продукты.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductWriteBehind {
+
+    // Маркер остановки - будит поток записи, ожидающий в poll()
+    private static final PendingWrite STOP = new PendingWrite(null, null);
+
+    private final ProductStore productStore;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${persistence.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${persistence.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${persistence.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${persistence.write-behind.flush-interval:200ms}")
+    private Duration flushInterval;
+
+    @Value("${persistence.write-behind.flush-retries:3}")
+    private int flushRetries;
+
+    @Value("${persistence.write-behind.flush-retry-backoff:100ms}")
+    private Duration flushRetryBackoff;
+
+    @Value("${persistence.write-behind.offer-timeout:50ms}")
+    private Duration offerTimeout;
+
+    @Value("${persistence.write-behind.shutdown-timeout:30s}")
+    private Duration shutdownTimeout;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private BlockingQueue<PendingWrite> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private Counter writtenCounter;
+    private Counter rejectedCounter;
+    private Counter failedCounter;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(capacity);
+        flushTimer = Timer.builder("persistence.write-behind.flush")
+                .description("Latency of one batched product flush")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("persistence.write-behind.written")
+                .description("Products persisted by the background writer")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("persistence.write-behind.rejected")
+                .description("Products written synchronously because the queue was full")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("persistence.write-behind.failed")
+                .description("Products lost because both the batch and the single-row writes failed")
+                .register(meterRegistry);
+        Gauge.builder("persistence.write-behind.queue.depth", queue, BlockingQueue::size)
+                .description("Products waiting to be flushed")
+                .register(meterRegistry);
+
+        running = true;
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        writer = builder.name("product-write-behind").start(this::run);
+        log.info("Write-behind persistence started: capacity={}, batchSize={}, flushInterval={}",
+                capacity, batchSize, flushInterval);
+    }
+
+    /**
+     * @return false, если отложенная запись выключена или очередь переполнена -
+     * тогда вызывающий должен сохранить продукт синхронно
+     */
+    public boolean submit(String barcode, ProductResponse product) {
+        if (!enabled || !running) {
+            return false;
+        }
+
+        try {
+            if (queue.offer(new PendingWrite(barcode, product), offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedCounter.increment();
+        return false;
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        long flushIntervalNanos = flushInterval.toNanos();
+
+        // После остановки дочищаем очередь до конца
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null || first == STOP) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    // При остановке не ждем добора пакета
+                    PendingWrite next = remaining > 0 && running
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null || next == STOP) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Прерывание - сигнал к остановке, оставшееся сбросим без ожидания
+                running = false;
+                queue.drainTo(batch);
+                batch.remove(STOP);
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        Map<String, ProductResponse> productsByBarcode = new LinkedHashMap<>();
+        batch.forEach(write -> productsByBarcode.put(write.barcode(), write.product()));
+
+        long start = System.nanoTime();
+        try {
+            if (saveWithRetry(productsByBarcode)) {
+                writtenCounter.increment(productsByBarcode.size());
+            } else {
+                saveOneByOne(productsByBarcode);
+            }
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Транзакция пакета откатывается целиком, поэтому его можно повторить как есть
+    private boolean saveWithRetry(Map<String, ProductResponse> productsByBarcode) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                productStore.saveAll(productsByBarcode);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= flushRetries) {
+                    log.error("Failed to flush {} products after {} attempts, saving one by one",
+                            productsByBarcode.size(), attempt + 1, e);
+                    return false;
+                }
+                log.warn("Failed to flush {} products, retrying: attempt={}, error={}",
+                        productsByBarcode.size(), attempt + 1, e.toString());
+            }
+
+            // Случайная пауза разводит пакеты, столкнувшиеся на одних строках
+            long backoff = Math.max(1, flushRetryBackoff.toMillis() << attempt);
+            try {
+                Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+            } catch (InterruptedException e) {
+                // Остановка: не ждем, сразу пишем по одному
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    // Одна проблемная строка не должна терять остальные строки пакета
+    private void saveOneByOne(Map<String, ProductResponse> productsByBarcode) {
+        productsByBarcode.forEach((barcode, product) -> {
+            try {
+                productStore.save(product, barcode);
+                writtenCounter.increment();
+            } catch (RuntimeException e) {
+                failedCounter.increment();
+                log.error("Failed to persist product: barcode={}", barcode, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+
+        running = false;
+        queue.offer(STOP);
+        writer.join(shutdownTimeout.toMillis());
+        if (writer.isAlive()) {
+            log.warn("Write-behind queue was not drained in {}, {} products left", shutdownTimeout, queue.size());
+            writer.interrupt();
+        } else {
+            log.info("Write-behind queue drained");
+        }
+    }
+
+    private record PendingWrite(
+            String barcode,
+            ProductResponse product
+    ) {
+    }
+}
@@ -0,0 +1,127 @@
+package com.x5.food.service;
+
+import com.x5.food.cache.NegativeLookupCache;
+import com.x5.food.cache.ProductCache;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import com.x5.food.external.ExternalProductService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Неблокирующий вариант {@link BarcodeService#getProductByBarcode(String)}: внешний вызов
+ * компонуется без block(), а JDBC выполняется на выделенном {@code jdbcScheduler}.
+ * Single-flight, отложенная запись и метрики поиска - те же, что у {@link BarcodeService}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "lookup.reactive.enabled", havingValue = "true")
+public class ReactiveBarcodeService {
+
+    private final ExternalProductService externalProductService;
+    private final ProductCache productCache;
+    private final NegativeLookupCache negativeLookupCache;
+    private final LookupCoalescer lookupCoalescer;
+    private final ProductStore productStore;
+    private final ProductWriteBehind productWriteBehind;
+    private final LookupMetrics lookupMetrics;
+    private final ProductRevalidator productRevalidator;
+    private final Scheduler jdbcScheduler;
+
+    public Mono<BarcodeService.ResponseWithStatus> getProductByBarcode(String barcode) {
+        long startedAt = System.nanoTime();
+
+        Optional<ProductResponse> cachedProduct = productCache.get(barcode);
+        if (cachedProduct.isPresent()) {
+            if (productCache.isDueForRefresh(barcode)) {
+                productRevalidator.requestRefresh(barcode, cachedProduct.get());
+            }
+            lookupMetrics.recordLookup(LookupMetrics.Outcome.CACHE_HIT, startedAt);
+            return Mono.just(new BarcodeService.ResponseWithStatus(HttpStatus.OK, cachedProduct.get()));
+        }
+
+        if (negativeLookupCache.isKnownMissing(barcode)) {
+            lookupMetrics.recordLookup(LookupMetrics.Outcome.NOT_FOUND, startedAt);
+            return Mono.just(new BarcodeService.ResponseWithStatus(HttpStatus.NOT_FOUND, null));
+        }
+
+        return lookupCoalescer.executeReactive(barcode, () -> loadProduct(barcode))
+                .doOnNext(result -> lookupMetrics.recordLookup(LookupMetrics.Outcome.of(result.status()), startedAt));
+    }
+
+    private Mono<BarcodeService.ResponseWithStatus> loadProduct(String barcode) {
+        // Проекция вместо сущности - ленивая коллекция вне транзакции недоступна
+        return Mono.fromCallable(() -> productStore.findByBarcode(barcode))
+                .subscribeOn(jdbcScheduler)
+                .flatMap(localProduct -> {
+                    if (localProduct.isPresent()) {
+                        ProductStore.StoredProduct stored = localProduct.get();
+                        productCache.put(barcode, stored.product(), stored.fetchedAt());
+                        if (productCache.isDueForRefresh(barcode)) {
+                            productRevalidator.requestRefresh(barcode, stored.product());
+                        }
+                        return Mono.just(new BarcodeService.ResponseWithStatus(HttpStatus.OK, stored.product()));
+                    }
+                    return fetchExternal(barcode);
+                });
+    }
+
+    private Mono<BarcodeService.ResponseWithStatus> fetchExternal(String barcode) {
+        return externalProductService.getProductByBarcode(barcode)
+                .flatMap(optionalProduct -> {
+                    if (optionalProduct.isEmpty()) {
+                        return recheckDatabase(barcode, () -> {
+                            negativeLookupCache.markMissing(barcode);
+                            return new BarcodeService.ResponseWithStatus(HttpStatus.NOT_FOUND, null);
+                        });
+                    }
+
+                    ProductResponse productResponse = optionalProduct.get();
+                    // offer в очередь write-behind может ждать offer-timeout - не на потоке event loop
+                    return Mono.fromRunnable(() -> persist(productResponse, barcode))
+                            .subscribeOn(jdbcScheduler)
+                            .then(Mono.fromSupplier(() -> {
+                                productCache.put(barcode, productResponse);
+                                return new BarcodeService.ResponseWithStatus(HttpStatus.CREATED, productResponse);
+                            }));
+                })
+                .onErrorResume(ExternalServiceUnavailableException.class, e -> {
+                    // Сбой внешнего API не кэшируем как "не найден"
+                    log.warn("External lookup failed for barcode: {}", barcode);
+                    return recheckDatabase(barcode,
+                            () -> new BarcodeService.ResponseWithStatus(HttpStatus.SERVICE_UNAVAILABLE, null));
+                });
+    }
+
+    // Как BarcodeService: "точно нет" индекса могло устареть - перед 404 и 503 перепроверяем БД
+    private Mono<BarcodeService.ResponseWithStatus> recheckDatabase(
+            String barcode, Supplier<BarcodeService.ResponseWithStatus> otherwise) {
+        return Mono.fromCallable(() -> productStore.recheckSkipped(barcode))
+                .subscribeOn(jdbcScheduler)
+                .map(rechecked -> rechecked
+                        .map(stored -> {
+                            productCache.put(barcode, stored.product(), stored.fetchedAt());
+                            return new BarcodeService.ResponseWithStatus(HttpStatus.OK, stored.product());
+                        })
+                        .orElseGet(otherwise));
+    }
+
+    // Как BarcodeService: в фоновую очередь, при ее переполнении - синхронно
+    private void persist(ProductResponse productResponse, String barcode) {
+        if (!productWriteBehind.submit(barcode, productResponse)) {
+            long startedAt = System.nanoTime();
+            productStore.save(productResponse, barcode);
+            lookupMetrics.recordPersist(LookupMetrics.PersistMode.SINGLE, startedAt);
+        }
+        // Записи кэша SKU сбрасываются после коммита записи, см. ProductStore
+    }
+}
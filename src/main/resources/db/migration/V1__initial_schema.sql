@@ -0,0 +1,15 @@
+-- Исходная схема. На существующей БД без истории Flyway не выполняется: baseline-on-migrate
+-- помечает ее как версию 1
+create table public.product
+(
+    sku  varchar(255)  not null primary key,
+    name varchar(1024) not null
+);
+
+create table public.barcode
+(
+    barcode varchar(255) not null primary key,
+    sku     varchar(255) references public.product (sku)
+);
+
+create index barcode_sku_idx on public.barcode (sku);
@@ -0,0 +1,6 @@
+-- Время последнего получения продукта из OpenFoodFacts для фоновой перепроверки.
+-- Существующие строки остаются с null и перепроверяются первыми
+alter table public.product
+    add column if not exists fetched_at timestamp with time zone;
+
+create index if not exists product_fetched_at_idx on public.product (fetched_at nulls first);
@@ -0,0 +1,35 @@
+-- Штрих-коды, сохраненные до канонизации (UPC-A, EAN-13 и GTIN-14 с ведущими нулями), приводятся
+-- к виду GtinNormalizer.normalize: GTIN-14 без ведущих нулей до EAN-8 или EAN-13.
+-- Ключи, не являющиеся GTIN, остаются как есть: API их не читает, но удаляет по исходному ключу
+create temporary table barcode_canonical on commit drop as
+select b.barcode,
+       case
+           when g.gtin like '000000%' then right(g.gtin, 8)
+           when g.gtin like '0%' then right(g.gtin, 13)
+           else g.gtin
+           end as canonical
+from public.barcode b
+         cross join lateral (select lpad(b.barcode, 14, '0') as gtin) g
+where b.barcode ~ '^([0-9]{8}|[0-9]{12,14})$'
+  -- Контрольная цифра GS1: вес 3 у нечетных позиций GTIN-14, 1 - у четных
+  and (10 - (select sum(substr(g.gtin, i, 1)::int * case when i % 2 = 1 then 3 else 1 end)
+             from generate_series(1, 13) i) % 10) % 10 = right(g.gtin, 1)::int;
+
+-- Из нескольких форм одного GTIN остается одна: каноническая, если она уже есть, иначе наименьшая
+delete
+from public.barcode b
+using barcode_canonical c
+where b.barcode = c.barcode
+  and c.barcode <> c.canonical
+  and (exists (select 1 from public.barcode x where x.barcode = c.canonical)
+    or exists (select 1
+               from barcode_canonical o
+               where o.canonical = c.canonical
+                 and o.barcode <> o.canonical
+                 and o.barcode < c.barcode));
+
+update public.barcode b
+set barcode = c.canonical
+from barcode_canonical c
+where b.barcode = c.barcode
+  and c.barcode <> c.canonical;
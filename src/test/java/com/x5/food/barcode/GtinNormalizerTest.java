@@ -0,0 +1,45 @@
+package com.x5.food.barcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GtinNormalizerTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "4006381333931, 4006381333931",   // EAN-13
+            "036000291452, 0036000291452",    // UPC-A -> EAN-13
+            "0036000291452, 0036000291452",   // тот же товар в форме EAN-13
+            "00036000291452, 0036000291452",  // и в форме GTIN-14
+            "96385074, 96385074",             // EAN-8
+            "0000096385074, 96385074",        // EAN-8, дополненный до EAN-13
+            "10012345678902, 10012345678902"  // GTIN-14 с индикатором упаковки
+    })
+    void normalize_WithValidGtin_ReturnsCanonicalForm(String barcode, String expected) {
+        assertEquals(expected, GtinNormalizer.normalize(barcode));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "1234567890", "4006381333932", "40063813339a1", "123456789012345", "4006381 33931"})
+    void normalize_WithInvalidInput_ReturnsNull(String barcode) {
+        assertNull(GtinNormalizer.normalize(barcode));
+    }
+
+    @Test
+    void normalize_WhenAlreadyCanonical_ReturnsSameInstance() {
+        // Arrange
+        String barcode = new String("4006381333931");
+
+        // Act & Assert
+        assertSame(barcode, GtinNormalizer.normalize(barcode));
+    }
+
+    @Test
+    void normalize_WithNull_ReturnsNull() {
+        assertNull(GtinNormalizer.normalize(null));
+    }
+}
@@ -0,0 +1,163 @@
+package com.x5.food.cache;
+
+import com.x5.food.dto.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private ProductCache productCache;
+    private CacheWarmup cacheWarmup;
+    private ProductCacheSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("product-cache.snapshot");
+        productCache = newCache();
+        cacheWarmup = new CacheWarmup();
+        snapshot = newSnapshot(productCache, cacheWarmup);
+    }
+
+    @Test
+    void load_AfterSave_RestoresEntriesIntoFreshCache() {
+        // Arrange
+        ProductResponse milk = new ProductResponse("SKU_1", "Молоко 1л", List.of("111", "222"));
+        ProductResponse bread = new ProductResponse("SKU_2", null, List.of("333"));
+        productCache.put("111", milk);
+        productCache.put("222", milk);
+        productCache.put("333", bread);
+        cacheWarmup.skip("no snapshot");
+        snapshot.save();
+
+        ProductCache restartedCache = newCache();
+        CacheWarmup restartedWarmup = new CacheWarmup();
+
+        // Act
+        newSnapshot(restartedCache, restartedWarmup).load();
+
+        // Assert
+        assertEquals(milk, restartedCache.get("111").orElseThrow());
+        assertEquals(milk, restartedCache.get("222").orElseThrow());
+        assertEquals(bread, restartedCache.get("333").orElseThrow());
+        assertTrue(restartedWarmup.isReady());
+        assertEquals(3, restartedWarmup.getLoaded());
+        assertEquals(3, restartedWarmup.getTotal());
+        assertEquals(100, restartedWarmup.getProgressPercent());
+    }
+
+    @Test
+    void save_WhileWarmingUp_KeepsPreviousSnapshot() {
+        // Arrange
+        productCache.put("111", new ProductResponse("SKU_1", "Молоко 1л", List.of("111")));
+
+        // Act
+        snapshot.save();
+
+        // Assert
+        assertFalse(cacheWarmup.isReady());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void load_WhenNoSnapshot_IsReadyWithColdCache() {
+        // Act
+        snapshot.load();
+
+        // Assert
+        assertTrue(cacheWarmup.isReady());
+        assertEquals("no snapshot", cacheWarmup.getSource());
+        assertEquals(0, productCache.size());
+    }
+
+    @Test
+    void load_WhenSnapshotOlderThanMaxAge_IgnoresIt() throws IOException {
+        // Arrange
+        ProductCacheSnapshot.write(file,
+                List.of(Map.entry("111", new ProductCache.Entry(
+                        new ProductResponse("SKU_1", "Молоко 1л", List.of("111")), Instant.now()))),
+                "0.0.1", Instant.now().minus(Duration.ofHours(2)));
+
+        // Act
+        snapshot.load();
+
+        // Assert
+        assertTrue(cacheWarmup.isReady());
+        assertTrue(productCache.get("111").isEmpty());
+    }
+
+    @Test
+    void load_WhenSnapshotCorrupted_StartsCold() throws IOException {
+        // Arrange
+        ProductCacheSnapshot.write(file,
+                List.of(Map.entry("111", new ProductCache.Entry(
+                        new ProductResponse("SKU_1", "Молоко 1л", List.of("111")), Instant.now()))),
+                "0.0.1", Instant.now());
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x7F;
+        Files.write(file, bytes);
+
+        // Act
+        snapshot.load();
+
+        // Assert
+        assertTrue(cacheWarmup.isReady());
+        assertTrue(productCache.get("111").isEmpty());
+    }
+
+    @Test
+    void readHeader_RecordsFormatAndSchemaOfCurrentBuild() throws IOException {
+        // Arrange
+        ProductCacheSnapshot.write(file, List.of(), "1.2.3", Instant.ofEpochMilli(1_000));
+
+        // Act
+        ProductCacheSnapshot.Header header = ProductCacheSnapshot.readHeader(
+                ByteBuffer.wrap(Files.readAllBytes(file)));
+
+        // Assert
+        assertEquals(ProductCacheSnapshot.FORMAT_VERSION, header.formatVersion());
+        assertEquals(ProductCacheSnapshot.SCHEMA, header.schema());
+        assertEquals("1.2.3", header.build());
+        assertEquals(Instant.ofEpochMilli(1_000), header.createdAt());
+        assertEquals(0, header.count());
+    }
+
+    private ProductCache newCache() {
+        ProductCache cache = new ProductCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cache, "expiryPolicy", ProductCache.ExpiryPolicy.AFTER_WRITE);
+        ReflectionTestUtils.setField(cache, "refreshAfter", Duration.ofSeconds(30));
+        cache.init();
+        return cache;
+    }
+
+    private ProductCacheSnapshot newSnapshot(ProductCache cache, CacheWarmup warmup) {
+        ProductCacheSnapshot result = new ProductCacheSnapshot(cache, warmup,
+                new StaticListableBeanFactory().getBeanProvider(BuildProperties.class));
+        ReflectionTestUtils.setField(result, "enabled", true);
+        ReflectionTestUtils.setField(result, "file", file.toString());
+        ReflectionTestUtils.setField(result, "maxEntries", 100);
+        ReflectionTestUtils.setField(result, "maxAge", Duration.ofHours(1));
+        return result;
+    }
+}
@@ -0,0 +1,120 @@
+package com.x5.food.cache;
+
+import com.x5.food.dto.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCache productCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productCache = new ProductCache(meterRegistry);
+        ReflectionTestUtils.setField(productCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(productCache, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(productCache, "expiryPolicy", ProductCache.ExpiryPolicy.AFTER_WRITE);
+        ReflectionTestUtils.setField(productCache, "refreshAfter", Duration.ofSeconds(30));
+        productCache.init();
+    }
+
+    @Test
+    void get_AfterPut_ReturnsProductAndCountsHit() {
+        // Arrange
+        ProductResponse product = new ProductResponse("SKU_1", "Молоко 1л", List.of("111"));
+        productCache.put("111", product);
+
+        // Act & Assert
+        assertEquals(product, productCache.get("111").orElseThrow());
+        assertTrue(productCache.get("222").isEmpty());
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void evictSku_AfterKeyMovedToOtherSku_KeepsNewEntry() {
+        // Arrange
+        productCache.put("111", new ProductResponse("SKU_1", "Молоко 1л", List.of("111", "222")));
+        productCache.put("222", new ProductResponse("SKU_1", "Молоко 1л", List.of("111", "222")));
+        ProductResponse moved = new ProductResponse("SKU_2", "Хлеб", List.of("222"));
+        productCache.put("222", moved);
+
+        // Act
+        productCache.evictSku("SKU_1");
+
+        // Assert
+        assertTrue(productCache.get("111").isEmpty());
+        assertEquals(moved, productCache.get("222").orElseThrow());
+    }
+
+    @Test
+    void put_WhenSizeEvicts_DropsEvictedKeysFromSkuIndex() {
+        // Arrange
+        ReflectionTestUtils.setField(productCache, "maxSize", 10L);
+        productCache.init();
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            productCache.put(String.valueOf(i), new ProductResponse("SKU_1", "Молоко 1л", List.of(String.valueOf(i))));
+        }
+        productCache.cleanUp();
+
+        // Assert - вытесненные ключи не копятся в индексе
+        assertEquals(productCache.size(), productCache.indexedKeys("SKU_1").size());
+    }
+
+    @Test
+    void replace_UpdatesOnlyEntriesStillCached() {
+        // Arrange
+        productCache.put("111", new ProductResponse("SKU_1", "Молоко", List.of("111")), Instant.EPOCH);
+        ProductResponse renamed = new ProductResponse("SKU_1", "Молоко 3,2%", List.of("111"));
+
+        // Act
+        productCache.replace("111", renamed);
+        productCache.replace("222", renamed);
+
+        // Assert
+        assertEquals(renamed, productCache.get("111").orElseThrow());
+        assertFalse(productCache.isDueForRefresh("111"));
+        assertTrue(productCache.get("222").isEmpty());
+    }
+
+    @Test
+    void evictSku_RemovesEntriesOfSku() {
+        // Arrange
+        productCache.put("111", new ProductResponse("SKU_1", "Молоко 1л", List.of("111")));
+        productCache.put("333", new ProductResponse("SKU_2", "Хлеб", List.of("333")));
+
+        // Act
+        productCache.evictSku("SKU_1");
+
+        // Assert
+        assertTrue(productCache.get("111").isEmpty());
+        assertTrue(productCache.get("333").isPresent());
+    }
+
+    @Test
+    void isDueForRefresh_TrueOnlyForEntriesFetchedBeforeRefreshAfter() {
+        // Arrange
+        ProductResponse product = new ProductResponse("SKU_1", "Молоко 1л", List.of("111"));
+        productCache.put("111", product);
+        productCache.put("222", product, Instant.now().minusSeconds(60));
+
+        // Act & Assert
+        assertFalse(productCache.isDueForRefresh("111"));
+        assertTrue(productCache.isDueForRefresh("222"));
+        assertFalse(productCache.isDueForRefresh("333"));
+        assertEquals(0.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+}
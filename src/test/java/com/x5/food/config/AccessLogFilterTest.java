@@ -0,0 +1,116 @@
+package com.x5.food.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void doFilter_PassesOriginalRequestAndResponseAndRecordsEntry() throws Exception {
+        // Arrange
+        AccessLogFilter filter = filter(16, 1.0);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/barcode/4006381333931");
+        request.setQueryString("lang=ru");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request, response, chain);
+
+        // Assert
+        // Тела не копируются: дальше по цепочке идут исходные объекты, без обертки
+        assertSame(request, chain.getRequest());
+        assertSame(response, chain.getResponse());
+        assertEquals(1, filter.drain());
+        assertEquals(0, filter.drain());
+    }
+
+    @Test
+    void record_WhenSampledOut_SkipsSuccessButKeepsErrors() {
+        // Arrange
+        AccessLogFilter filter = filter(16, 0.0);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/barcode/4006381333931");
+        MockHttpServletResponse ok = new MockHttpServletResponse();
+        MockHttpServletResponse notFound = new MockHttpServletResponse();
+        notFound.setStatus(HttpServletResponse.SC_NOT_FOUND);
+
+        // Act
+        filter.record(request, ok, 1_000);
+        filter.record(request, notFound, 1_000);
+        filter.record(request, ok, Duration.ofSeconds(2).toNanos());
+
+        // Assert
+        assertEquals(2, filter.drain());
+    }
+
+    @Test
+    void record_WhenBufferFull_DropsAndCounts() {
+        // Arrange
+        AccessLogFilter filter = filter(4, 1.0);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/barcode/4006381333931");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        for (int i = 0; i < 6; i++) {
+            filter.record(request, response, 1_000);
+        }
+
+        // Assert
+        assertEquals(2, meterRegistry.get("access.log.dropped").counter().count());
+        assertEquals(4, filter.drain());
+        filter.record(request, response, 1_000);
+        assertEquals(1, filter.drain());
+    }
+
+    @Test
+    void ringBuffer_DrainsInPublishOrderAcrossWraparound() {
+        // Arrange
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+        List<Integer> drained = new ArrayList<>();
+
+        // Act
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 3; i++) {
+                long sequence = buffer.claim();
+                buffer.entry(sequence).status = round * 10 + i;
+                buffer.publish(sequence);
+            }
+            buffer.drain(entry -> drained.add(entry.status), Integer.MAX_VALUE);
+        }
+
+        // Assert
+        assertEquals(List.of(0, 1, 2, 10, 11, 12, 20, 21, 22), drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void ringBuffer_StopsAtUnpublishedSlot() {
+        // Arrange
+        AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+        long first = buffer.claim();
+        long second = buffer.claim();
+        buffer.publish(second);
+
+        // Act & Assert
+        assertEquals(0, buffer.drain(entry -> { }, 10));
+        buffer.publish(first);
+        assertEquals(2, buffer.drain(entry -> { }, 10));
+    }
+
+    private AccessLogFilter filter(int bufferSize, double sampleRate) {
+        return new AccessLogFilter(true, bufferSize, sampleRate, Duration.ofSeconds(1), 256,
+                Duration.ofMillis(10), meterRegistry);
+    }
+}
@@ -0,0 +1,126 @@
+package com.x5.food.config;
+
+import com.x5.food.service.BarcodeService;
+import com.x5.food.service.LookupCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Блокирующие участки пути запроса на виртуальных потоках не должны закреплять поток-носитель:
+ * тест падает на любом JFR-событии jdk.VirtualThreadPinned.
+ */
+class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final Duration BLOCKING_CALL = Duration.ofMillis(20);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void dbConcurrencyLimit_WhenVirtualThreadsQueueForPermits_DoesNotPin() throws Throwable {
+        // Arrange - разрешений меньше потоков: часть ждет на семафоре, владельцы блокируются "в JDBC"
+        DbConcurrencyLimitAspect aspect = new DbConcurrencyLimitAspect(4, Duration.ofSeconds(30),
+                new SimpleMeterRegistry());
+        ProceedingJoinPoint joinPoint = mock(ProceedingJoinPoint.class);
+        when(joinPoint.proceed()).thenAnswer(invocation -> {
+            Thread.sleep(BLOCKING_CALL);
+            return null;
+        });
+
+        // Act
+        List<RecordedEvent> events = recordPinned(() -> aspect.limit(joinPoint));
+
+        // Assert
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void lookupCoalescer_WhenVirtualThreadsWaitForSameBarcode_DoesNotPin() throws Exception {
+        // Arrange
+        LookupCoalescer coalescer = new LookupCoalescer(new SimpleMeterRegistry());
+
+        // Act
+        List<RecordedEvent> events = recordPinned(() -> coalescer.execute("4006381333931", () -> {
+            try {
+                Thread.sleep(BLOCKING_CALL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new BarcodeService.ResponseWithStatus(HttpStatus.NOT_FOUND, null);
+        }));
+
+        // Assert
+        assertEquals(List.of(), events);
+    }
+
+    @Test
+    void recordPinned_WhenBlockingInsideSynchronized_ReportsEvent() throws Exception {
+        // Arrange - проверка самой проверки: synchronized + блокировка закрепляет носитель
+        Object monitor = new Object();
+
+        // Act
+        List<RecordedEvent> events = recordPinned(() -> {
+            synchronized (monitor) {
+                Thread.sleep(BLOCKING_CALL);
+            }
+            return null;
+        });
+
+        // Assert
+        assertFalse(events.isEmpty());
+    }
+
+    private List<RecordedEvent> recordPinned(BlockingCall call) throws Exception {
+        Path file = directory.resolve("pinned.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(1)).withStackTrace();
+            recording.start();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<Object>> futures = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            return call.run();
+                        } catch (Throwable e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }));
+                }
+                for (Future<Object> future : futures) {
+                    future.get();
+                }
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> PINNED_EVENT.equals(event.getEventType().getName()))
+                .toList();
+    }
+
+    @FunctionalInterface
+    private interface BlockingCall {
+        Object run() throws Throwable;
+    }
+}
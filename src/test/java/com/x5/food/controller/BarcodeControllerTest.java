@@ -1,21 +1,29 @@
 package com.x5.food.controller;
 
+import com.x5.food.dto.BatchLookupRequest;
+import com.x5.food.dto.BatchLookupResponse;
 import com.x5.food.dto.ProductResponse;
 import com.x5.food.exception.BadRequestException;
+import com.x5.food.exception.ExternalServiceUnavailableException;
 import com.x5.food.exception.ResourceNotFoundException;
 import com.x5.food.service.BarcodeService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,6 +38,9 @@ class BarcodeControllerTest {
     @Mock
     private HttpServletRequest request;
 
+    @Spy
+    private ProductHttpCaching productHttpCaching = new ProductHttpCaching();
+
     @InjectMocks
     private BarcodeController barcodeController;
 
@@ -38,9 +49,12 @@ class BarcodeControllerTest {
 
     @BeforeEach
     void setUp() {
-        validBarcode = "1234567890";
+        validBarcode = "4006381333931";
         productResponse = new ProductResponse("SKU_3757", "Бананы 1кг",
                 List.of(validBarcode, "ANOTHER_TEST_BARCODE"));
+        ReflectionTestUtils.setField(barcodeController, "maxBatchSize", 2);
+        ReflectionTestUtils.setField(productHttpCaching, "maxAge", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(productHttpCaching, "staleWhileRevalidate", Duration.ofHours(1));
     }
 
     // Вспомогательный метод для тестирования приватного метода
@@ -129,7 +143,7 @@ class BarcodeControllerTest {
         when(barcodeService.getProductByBarcode(validBarcode)).thenReturn(responseWithStatus);
 
         // Act
-        ResponseEntity<ProductResponse> response = barcodeController.getProductByBarcode(validBarcode);
+        ResponseEntity<ProductResponse> response = barcodeController.getProductByBarcode(validBarcode, null);
 
         // Assert
         assertNotNull(response);
@@ -138,11 +152,59 @@ class BarcodeControllerTest {
         verify(barcodeService).getProductByBarcode(validBarcode);
     }
 
+    @Test
+    void getProductByBarcode_WithValidBarcode_SetsETagAndCacheControl() {
+        // Arrange
+        when(barcodeService.getProductByBarcode(validBarcode))
+                .thenReturn(new BarcodeService.ResponseWithStatus(HttpStatus.OK, productResponse));
+
+        // Act
+        ResponseEntity<ProductResponse> response = barcodeController.getProductByBarcode(validBarcode, null);
+
+        // Assert
+        assertEquals(ProductHttpCaching.etag(productResponse), response.getHeaders().getETag());
+        assertEquals("max-age=300, public, stale-while-revalidate=3600", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void getProductByBarcode_WhenIfNoneMatchMatches_ReturnsNotModifiedWithoutBody() {
+        // Arrange
+        when(barcodeService.getProductByBarcode(validBarcode))
+                .thenReturn(new BarcodeService.ResponseWithStatus(HttpStatus.OK, productResponse));
+        String etag = ProductHttpCaching.etag(productResponse);
+
+        // Act
+        ResponseEntity<ProductResponse> response =
+                barcodeController.getProductByBarcode(validBarcode, "\"other\", W/" + etag);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(etag, response.getHeaders().getETag());
+    }
+
+    @Test
+    void getProductByBarcode_WhenProductChanged_ReturnsNewBodyForStaleETag() {
+        // Arrange
+        String staleEtag = ProductHttpCaching.etag(productResponse);
+        ProductResponse renamed = new ProductResponse(productResponse.sku(), "Бананы 2кг", productResponse.barcodes());
+        when(barcodeService.getProductByBarcode(validBarcode))
+                .thenReturn(new BarcodeService.ResponseWithStatus(HttpStatus.OK, renamed));
+
+        // Act
+        ResponseEntity<ProductResponse> response = barcodeController.getProductByBarcode(validBarcode, staleEtag);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(renamed, response.getBody());
+        assertNotEquals(staleEtag, response.getHeaders().getETag());
+    }
+
     @Test
     void getProductByBarcode_WithEmptyBarcode_ThrowsBadRequestException() {
         // Act & Assert
         BadRequestException exception = assertThrows(BadRequestException.class,
-                () -> barcodeController.getProductByBarcode(""));
+                () -> barcodeController.getProductByBarcode("", null));
 
         assertEquals("Штрих-код не может быть пустым", exception.getMessage());
         verifyNoInteractions(barcodeService);
@@ -152,12 +214,57 @@ class BarcodeControllerTest {
     void getProductByBarcode_WithNullBarcode_ThrowsBadRequestException() {
         // Act & Assert
         BadRequestException exception = assertThrows(BadRequestException.class,
-                () -> barcodeController.getProductByBarcode(null));
+                () -> barcodeController.getProductByBarcode(null, null));
 
         assertEquals("Штрих-код не может быть пустым", exception.getMessage());
         verifyNoInteractions(barcodeService);
     }
 
+    @Test
+    void getProductByBarcode_WithWrongCheckDigit_ThrowsBadRequestException() {
+        // Act & Assert
+        assertThrows(BadRequestException.class,
+                () -> barcodeController.getProductByBarcode("4006381333932", null));
+
+        verifyNoInteractions(barcodeService);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"abc", "'; --", "123456789"})
+    void getProductByBarcode_WithNonGtinInput_RejectsBeforeAnyLookup(String barcode) {
+        // Act & Assert
+        assertThrows(BadRequestException.class,
+                () -> barcodeController.getProductByBarcode(barcode, null));
+
+        verifyNoInteractions(barcodeService);
+    }
+
+    @Test
+    void getProductByBarcode_WithUpcA_LooksUpCanonicalEan13() {
+        // Arrange
+        BarcodeService.ResponseWithStatus responseWithStatus =
+                new BarcodeService.ResponseWithStatus(HttpStatus.OK, productResponse);
+        when(barcodeService.getProductByBarcode("0036000291452")).thenReturn(responseWithStatus);
+
+        // Act
+        ResponseEntity<ProductResponse> response = barcodeController.getProductByBarcode("036000291452", null);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(barcodeService).getProductByBarcode("0036000291452");
+    }
+
+    @Test
+    void getProductByBarcode_WhenUpstreamUnavailable_ThrowsExternalServiceUnavailableException() {
+        // Arrange
+        when(barcodeService.getProductByBarcode(validBarcode))
+                .thenReturn(new BarcodeService.ResponseWithStatus(HttpStatus.SERVICE_UNAVAILABLE, null));
+
+        // Act & Assert - 503, а не неотличимый от отсутствия товара 404
+        assertThrows(ExternalServiceUnavailableException.class,
+                () -> barcodeController.getProductByBarcode(validBarcode, null));
+    }
+
     @Test
     void getProductByBarcode_WithNonExistentBarcode_ThrowsResourceNotFoundException() {
         // Arrange
@@ -168,10 +275,54 @@ class BarcodeControllerTest {
 
         // Act & Assert
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
-                () -> barcodeController.getProductByBarcode(validBarcode));
+                () -> barcodeController.getProductByBarcode(validBarcode, null));
 
         assertEquals("Продукт с таким штрих-кодом не найден", exception.getMessage());
         verify(barcodeService).getProductByBarcode(validBarcode);
     }
 
-}
\ No newline at end of file
+    @Test
+    void getProductsByBarcodes_WithValidRequest_ReturnsItems() {
+        // Arrange
+        BatchLookupResponse batchResponse = new BatchLookupResponse(
+                List.of(BatchLookupResponse.Item.fromDatabase(validBarcode, productResponse)));
+        when(barcodeService.getProductsByBarcodes(List.of(validBarcode))).thenReturn(batchResponse);
+
+        // Act
+        ResponseEntity<BatchLookupResponse> response =
+                barcodeController.getProductsByBarcodes(new BatchLookupRequest(List.of(validBarcode)));
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(batchResponse, response.getBody());
+    }
+
+    @Test
+    void getProductsByBarcodes_WithEmptyList_ThrowsBadRequestException() {
+        // Act & Assert
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> barcodeController.getProductsByBarcodes(new BatchLookupRequest(List.of())));
+
+        assertEquals("Список штрих-кодов не может быть пустым", exception.getMessage());
+        verifyNoInteractions(barcodeService);
+    }
+
+    @Test
+    void getProductsByBarcodes_WithInvalidBarcode_ThrowsBadRequestException() {
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> barcodeController.getProductsByBarcodes(
+                new BatchLookupRequest(List.of(validBarcode, "12345"))));
+
+        verifyNoInteractions(barcodeService);
+    }
+
+    @Test
+    void getProductsByBarcodes_WithTooManyBarcodes_ThrowsBadRequestException() {
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> barcodeController.getProductsByBarcodes(
+                new BatchLookupRequest(List.of("1", "2", "3"))));
+
+        verifyNoInteractions(barcodeService);
+    }
+
+}
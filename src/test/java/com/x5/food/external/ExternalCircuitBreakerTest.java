@@ -0,0 +1,132 @@
+package com.x5.food.external;
+
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalCircuitBreakerTest {
+
+    private final List<ExternalCircuitBreaker.CircuitStateChangedEvent> events = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private ExternalCircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new ExternalCircuitBreaker(4, 4, 50, Duration.ofMillis(100), 1,
+                event -> events.add((ExternalCircuitBreaker.CircuitStateChangedEvent) event), meterRegistry);
+    }
+
+    @Test
+    void execute_WhenFailureRateReachesThreshold_OpensAndShortCircuits() {
+        // Arrange - 2 сбоя из 4 вызовов = 50%
+        call(Mono.just("ok"));
+        call(Mono.just("ok"));
+        assertThrows(IllegalStateException.class, () -> call(Mono.error(new IllegalStateException("503"))));
+        assertThrows(IllegalStateException.class, () -> call(Mono.error(new IllegalStateException("503"))));
+
+        // Act & Assert
+        assertEquals(ExternalCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertThrows(ExternalServiceUnavailableException.class, () -> call(Mono.just("ok")));
+        assertEquals(1.0, meterRegistry.get("external.circuit.short-circuited").counter().count());
+        assertEquals(1.0, meterRegistry.get("external.circuit.state").tag("state", "open").gauge().value());
+        assertEquals(1, events.size());
+    }
+
+    @Test
+    void execute_WhenNonFailureErrors_StaysClosed() {
+        // Act - ошибки, которые предикат не считает сбоем (например, 404)
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalArgumentException.class, () -> circuitBreaker.execute("1",
+                    Mono.error(new IllegalArgumentException("404")),
+                    e -> ExternalCircuitBreaker.Outcome.SUCCESS).block());
+        }
+
+        // Assert
+        assertEquals(ExternalCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_AfterOpenDuration_ProbesAndCloses() throws InterruptedException {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> call(Mono.error(new IllegalStateException("503"))));
+        }
+        assertEquals(ExternalCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Thread.sleep(150);
+
+        // Act
+        assertEquals("ok", call(Mono.just("ok")));
+
+        // Assert - OPEN -> HALF_OPEN -> CLOSED
+        assertEquals(ExternalCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(List.of(ExternalCircuitBreaker.State.OPEN, ExternalCircuitBreaker.State.HALF_OPEN,
+                        ExternalCircuitBreaker.State.CLOSED),
+                events.stream().map(ExternalCircuitBreaker.CircuitStateChangedEvent::to).toList());
+    }
+
+    @Test
+    void execute_WhenProbeFails_ReopensCircuit() throws InterruptedException {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> call(Mono.error(new IllegalStateException("503"))));
+        }
+        Thread.sleep(150);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> call(Mono.error(new IllegalStateException("503"))));
+
+        // Assert
+        assertEquals(ExternalCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_WhenProbeRejectedLocally_FreesProbeWithoutClosing() throws InterruptedException {
+        // Arrange
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> call(Mono.error(new IllegalStateException("503"))));
+        }
+        Thread.sleep(150);
+
+        // Act - отказ ограничителя скорости не доказывает, что API восстановился
+        assertThrows(ExternalServiceUnavailableException.class, () -> circuitBreaker.execute("1",
+                Mono.error(new ExternalServiceUnavailableException("rate limit", null)),
+                e -> ExternalCircuitBreaker.Outcome.IGNORED).block());
+
+        // Assert - цепь не закрыта, а место пробы свободно для следующего вызова
+        assertEquals(ExternalCircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertEquals("ok", call(Mono.just("ok")));
+        assertEquals(ExternalCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    void execute_WhenErrorsIgnored_KeepsThemOutOfWindow() {
+        // Arrange - отказы ограничителя между сбоями не вытесняют сбои из окна
+        assertThrows(IllegalStateException.class, () -> call(Mono.error(new IllegalStateException("503"))));
+        assertThrows(IllegalStateException.class, () -> call(Mono.error(new IllegalStateException("503"))));
+        for (int i = 0; i < 10; i++) {
+            assertThrows(ExternalServiceUnavailableException.class, () -> circuitBreaker.execute("1",
+                    Mono.error(new ExternalServiceUnavailableException("rate limit", null)),
+                    e -> ExternalCircuitBreaker.Outcome.IGNORED).block());
+        }
+
+        // Act - 2 сбоя из 4 учтенных вызовов = 50%
+        call(Mono.just("ok"));
+        call(Mono.just("ok"));
+
+        // Assert
+        assertEquals(ExternalCircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private String call(Mono<String> upstream) {
+        return circuitBreaker.execute("1", upstream, e -> ExternalCircuitBreaker.Outcome.FAILURE).block();
+    }
+}
@@ -3,19 +3,31 @@ package com.x5.food.external;
 import com.x5.food.dto.OpenFoodFactsResponse;
 import com.x5.food.dto.ProductResponse;
 import com.x5.food.exception.ApiResponseFormatException;
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +47,24 @@ class ExternalProductServiceTest {
     @Mock
     private WebClient.ResponseSpec responseSpec;
 
+    @Spy
+    private ExternalCallBulkhead bulkhead = new ExternalCallBulkhead(1, new SimpleMeterRegistry());
+
+    @Spy
+    private UpstreamRateLimiter rateLimiter = new UpstreamRateLimiter(true, 1000, 1, 1000, 1000, 0.05, 0.5,
+            Duration.ofSeconds(1), Duration.ofSeconds(60), Duration.ofSeconds(2), Duration.ofSeconds(30),
+            new SimpleMeterRegistry());
+
+    @Spy
+    private ExternalCircuitBreaker circuitBreaker = new ExternalCircuitBreaker(4, 2, 50, Duration.ofMinutes(1), 1,
+            event -> {
+            }, new SimpleMeterRegistry());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ExternalCallMetrics metrics = new ExternalCallMetrics(meterRegistry);
+
     @InjectMocks
     private ExternalProductService externalProductService;
 
@@ -141,6 +171,8 @@ class ExternalProductServiceTest {
         assertTrue(result.isPresent());
         assertEquals("Test Product 500g", result.get().name());
         assertEquals(testBarcode, result.get().barcodes().get(0));
+        assertEquals(1, meterRegistry.get("external.request").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("external.lookup").tag("outcome", "found").timer().count());
     }
 
     @Test
@@ -159,6 +191,141 @@ class ExternalProductServiceTest {
         assertFalse(result.isPresent());
     }
 
+    @Test
+    void getProductByBarcode_WithUpstreamNotFound_ReturnsEmpty() {
+        // Arrange
+        mockWebClientCalls();
+        when(responseSpec.bodyToMono(OpenFoodFactsResponse.class))
+                .thenReturn(Mono.error(WebClientResponseException.create(404, "Not Found",
+                        HttpHeaders.EMPTY, null, null)));
+
+        // Act
+        Optional<ProductResponse> result = externalProductService.getProductByBarcode(testBarcode).block();
+
+        // Assert
+        assertFalse(result.isPresent());
+    }
+
+    @Test
+    void getProductByBarcode_WithUpstreamServerError_ThrowsExternalServiceUnavailableException() {
+        // Arrange
+        mockWebClientCalls();
+        when(responseSpec.bodyToMono(OpenFoodFactsResponse.class))
+                .thenReturn(Mono.error(WebClientResponseException.create(503, "Service Unavailable",
+                        HttpHeaders.EMPTY, null, null)));
+
+        // Act & Assert
+        Mono<Optional<ProductResponse>> resultMono = externalProductService.getProductByBarcode(testBarcode);
+
+        assertThrows(ExternalServiceUnavailableException.class, () -> resultMono.block());
+    }
+
+    @Test
+    void getProductByBarcode_WhenAttemptHangs_ThrowsExternalServiceUnavailableException() {
+        // Arrange
+        ReflectionTestUtils.setField(externalProductService, "attemptTimeout", 50L);
+        mockWebClientCalls();
+        when(responseSpec.bodyToMono(OpenFoodFactsResponse.class)).thenReturn(Mono.never());
+
+        // Act & Assert
+        Mono<Optional<ProductResponse>> resultMono = externalProductService.getProductByBarcode(testBarcode);
+
+        assertThrows(ExternalServiceUnavailableException.class, () -> resultMono.block());
+    }
+
+    @Test
+    void getProductByBarcode_WhenBulkheadFull_RejectsWithoutCallingUpstream() {
+        // Arrange - единственное разрешение занято зависшим вызовом
+        mockWebClientCalls();
+        when(responseSpec.bodyToMono(OpenFoodFactsResponse.class)).thenReturn(Mono.never());
+        var inFlight = externalProductService.getProductByBarcode(testBarcode).subscribe();
+
+        // Act & Assert
+        try {
+            Mono<Optional<ProductResponse>> resultMono = externalProductService.getProductByBarcode(testBarcode);
+            assertThrows(ExternalServiceUnavailableException.class, () -> resultMono.block());
+        } finally {
+            inFlight.dispose();
+        }
+
+        // Отмена освобождает разрешение
+        when(responseSpec.bodyToMono(OpenFoodFactsResponse.class)).thenReturn(Mono.empty());
+        Mono<Optional<ProductResponse>> nextMono = externalProductService.getProductByBarcode(testBarcode);
+        assertEquals(Optional.empty(), nextMono.block());
+    }
+
+    @Test
+    void getProductByBarcode_WhileWaitingForRateLimiter_DoesNotHoldBulkhead() {
+        // Arrange - первый вызов стоит в очереди ограничителя скорости
+        mockWebClientCalls();
+        when(responseSpec.bodyToMono(OpenFoodFactsResponse.class)).thenReturn(Mono.empty());
+        doReturn(Mono.never()).doCallRealMethod().when(rateLimiter).acquire(testBarcode, LookupPriority.INTERACTIVE);
+        var waiting = externalProductService.getProductByBarcode(testBarcode).subscribe();
+
+        // Act & Assert - единственное место bulkhead свободно для следующего вызова
+        try {
+            Mono<Optional<ProductResponse>> resultMono = externalProductService.getProductByBarcode(testBarcode);
+            assertEquals(Optional.empty(), resultMono.block());
+        } finally {
+            waiting.dispose();
+        }
+    }
+
+    @Test
+    void getProductByBarcode_WhenCircuitOpen_FailsFastWithoutCallingUpstream() {
+        // Arrange - два сбоя подряд размыкают цепь
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        mockWebClientCalls();
+        when(responseSpec.bodyToMono(OpenFoodFactsResponse.class))
+                .thenReturn(Mono.defer(() -> {
+                    upstreamCalls.incrementAndGet();
+                    return Mono.error(WebClientResponseException.create(503, "Service Unavailable",
+                            HttpHeaders.EMPTY, null, null));
+                }));
+        for (int i = 0; i < 2; i++) {
+            Mono<Optional<ProductResponse>> failing = externalProductService.getProductByBarcode(testBarcode);
+            assertThrows(ExternalServiceUnavailableException.class, () -> failing.block());
+        }
+        assertEquals(ExternalCircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // Act & Assert
+        Mono<Optional<ProductResponse>> resultMono = externalProductService.getProductByBarcode(testBarcode);
+        assertThrows(ExternalServiceUnavailableException.class, () -> resultMono.block());
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void getProductByBarcode_WhenServerErrorRetried_RecordsAttemptsAndRetries() {
+        // Arrange
+        ReflectionTestUtils.setField(externalProductService, "maxAttempts", 2);
+        ReflectionTestUtils.setField(externalProductService, "retryDelay", 1L);
+        mockWebClientCalls();
+        when(responseSpec.bodyToMono(OpenFoodFactsResponse.class))
+                .thenReturn(Mono.defer(() -> Mono.error(WebClientResponseException.create(503, "Service Unavailable",
+                        HttpHeaders.EMPTY, null, null))));
+
+        // Act
+        Mono<Optional<ProductResponse>> resultMono = externalProductService.getProductByBarcode(testBarcode);
+        assertThrows(ExternalServiceUnavailableException.class, () -> resultMono.block());
+
+        // Assert
+        assertEquals(3, meterRegistry.get("external.request").tag("outcome", "server_error").timer().count());
+        assertEquals(2, meterRegistry.get("external.retries").tag("reason", "server_error").counter().count());
+        assertEquals(1, meterRegistry.get("external.lookup").tag("outcome", "unavailable").timer().count());
+    }
+
+    @Test
+    void parseRetryAfter_SupportsSecondsAndHttpDate() {
+        assertEquals(Duration.ofSeconds(30), ExternalProductService.parseRetryAfter("30"));
+        assertNull(ExternalProductService.parseRetryAfter("soon"));
+        assertNull(ExternalProductService.parseRetryAfter(null));
+
+        Duration untilDate = ExternalProductService.parseRetryAfter(
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusMinutes(2)));
+        assertNotNull(untilDate);
+        assertTrue(untilDate.toSeconds() > 60);
+    }
+
     private void mockWebClientCalls() {
         when(webClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(anyString())).thenReturn(requestHeadersSpec);
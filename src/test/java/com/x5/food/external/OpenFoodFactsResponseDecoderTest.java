@@ -0,0 +1,132 @@
+package com.x5.food.external;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x5.food.dto.OpenFoodFactsResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenFoodFactsResponseDecoderTest {
+
+    private static final String RESPONSE = """
+            {
+              "code": "4006381333931",
+              "product": {
+                "_keywords": ["pen", "stabilo"],
+                "ingredients": [{"id": "en:water", "rank": 1, "nested": {"deep": [1, 2, {"x": null}]}}],
+                "product_name": "Point 88 \\"Fineliner\\"",
+                "brands": "Stabilo",
+                "nutriments": {"energy-kcal": 1, "energy-kcal_100g": 250.5, "fat_100g": "3"},
+                "quantity": "10 pcs"
+              },
+              "status": 1,
+              "status_verbose": "product found"
+            }
+            """;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void decodeToMono_Streaming_ReadsOnlyNeededFieldsAcrossChunkBoundaries() {
+        // Arrange
+        OpenFoodFactsResponseDecoder decoder = decoder(OpenFoodFactsResponseDecoder.Mode.STREAMING);
+
+        // Act - буферы по 7 байт режут токены на части
+        OpenFoodFactsResponse result = decoder.decodeToMono(chunks(RESPONSE, 7),
+                ResolvableType.forClass(OpenFoodFactsResponse.class), MediaType.APPLICATION_JSON, Map.of()).block();
+
+        // Assert
+        assertEquals(new OpenFoodFactsResponse("4006381333931", new OpenFoodFactsResponse.Product(
+                "Point 88 \"Fineliner\"", "10 pcs", "Stabilo", new OpenFoodFactsResponse.Nutriments(250.5))), result);
+        assertEquals(1, meterRegistry.get("external.response.bytes").tag("parser", "streaming").summary().count());
+    }
+
+    @Test
+    void decodeToMono_Streaming_MatchesFullObjectMapperPath() {
+        // Arrange
+        ResolvableType type = ResolvableType.forClass(OpenFoodFactsResponse.class);
+
+        // Act
+        OpenFoodFactsResponse streaming = decoder(OpenFoodFactsResponseDecoder.Mode.STREAMING)
+                .decodeToMono(chunks(RESPONSE, 64), type, MediaType.APPLICATION_JSON, Map.of()).block();
+        OpenFoodFactsResponse full = decoder(OpenFoodFactsResponseDecoder.Mode.FULL)
+                .decodeToMono(chunks(RESPONSE, 64), type, MediaType.APPLICATION_JSON, Map.of()).block();
+
+        // Assert
+        assertEquals(full, streaming);
+    }
+
+    @Test
+    void decodeToMono_Streaming_DrainsRestWithoutParsingAfterProduct() {
+        // Arrange - после закрытия product идет не JSON: разбор остатка дал бы ошибку
+        String head = RESPONSE.substring(0, RESPONSE.indexOf("\"status\""));
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<DataBuffer> body = chunks(head, 16)
+                .concatWith(chunks("<not json>", 4))
+                .doOnCancel(() -> cancelled.set(true));
+
+        // Act
+        OpenFoodFactsResponse result = decoder(OpenFoodFactsResponseDecoder.Mode.STREAMING)
+                .decodeToMono(body, ResolvableType.forClass(OpenFoodFactsResponse.class),
+                        MediaType.APPLICATION_JSON, Map.of()).block();
+
+        // Assert - тело дочитано до конца, соединение возвращается в пул
+        assertNotNull(result);
+        assertEquals("Stabilo", result.product().brands());
+        assertFalse(cancelled.get());
+        // Дочитанный остаток учтен в прочитанных байтах, как в режиме FULL
+        assertEquals(head.getBytes(StandardCharsets.UTF_8).length + "<not json>".length(),
+                meterRegistry.get("external.response.bytes").tag("parser", "streaming").summary().totalAmount());
+    }
+
+    @Test
+    void decodeToMono_Streaming_WithoutProduct_ReturnsNullProduct() {
+        // Act
+        OpenFoodFactsResponse result = decoder(OpenFoodFactsResponseDecoder.Mode.STREAMING)
+                .decodeToMono(chunks("{\"code\":\"4006381333931\",\"status\":0,\"product\":null}", 5),
+                        ResolvableType.forClass(OpenFoodFactsResponse.class), MediaType.APPLICATION_JSON, Map.of())
+                .block();
+
+        // Assert
+        assertEquals(new OpenFoodFactsResponse("4006381333931", null), result);
+    }
+
+    @Test
+    void canDecode_OnlyOpenFoodFactsResponse() {
+        OpenFoodFactsResponseDecoder decoder = decoder(OpenFoodFactsResponseDecoder.Mode.STREAMING);
+
+        assertTrue(decoder.canDecode(ResolvableType.forClass(OpenFoodFactsResponse.class), MediaType.APPLICATION_JSON));
+        assertFalse(decoder.canDecode(ResolvableType.forClass(String.class), MediaType.APPLICATION_JSON));
+    }
+
+    private OpenFoodFactsResponseDecoder decoder(OpenFoodFactsResponseDecoder.Mode mode) {
+        // Как у ObjectMapper из Spring Boot: неизвестные поля не считаются ошибкой
+        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return new OpenFoodFactsResponseDecoder(objectMapper, mode, 2 * 1024 * 1024, meterRegistry);
+    }
+
+    private static Flux<DataBuffer> chunks(String json, int chunkSize) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            int length = Math.min(chunkSize, bytes.length - offset);
+            byte[] chunk = new byte[length];
+            System.arraycopy(bytes, offset, chunk, 0, length);
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
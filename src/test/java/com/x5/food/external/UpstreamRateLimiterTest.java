@@ -0,0 +1,104 @@
+package com.x5.food.external;
+
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamRateLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void acquire_WhenBucketEmpty_ServesInteractiveBeforeBatch() throws InterruptedException {
+        // Arrange - 10 разрешений в секунду, запас на один запрос
+        UpstreamRateLimiter limiter = limiter(10, 1, Duration.ofSeconds(2));
+        limiter.acquire("0", LookupPriority.INTERACTIVE).block();
+
+        List<LookupPriority> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+
+        // Act - пакетный запрос встал в очередь раньше интерактивного
+        Disposable batch = limiter.acquire("1", LookupPriority.BATCH)
+                .doOnSuccess(ignored -> order.add(LookupPriority.BATCH))
+                .doFinally(signal -> done.countDown())
+                .subscribe();
+        Disposable interactive = limiter.acquire("2", LookupPriority.INTERACTIVE)
+                .doOnSuccess(ignored -> order.add(LookupPriority.INTERACTIVE))
+                .doFinally(signal -> done.countDown())
+                .subscribe();
+
+        // Assert
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of(LookupPriority.INTERACTIVE, LookupPriority.BATCH), order);
+        assertEquals(1, meterRegistry.get("external.ratelimit.wait").tag("priority", "batch").timer().count());
+        batch.dispose();
+        interactive.dispose();
+    }
+
+    @Test
+    void acquire_AfterRetryAfter_WaitsUntilItExpires() {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(100, 10, Duration.ofSeconds(2));
+        limiter.onThrottled(Duration.ofMillis(300));
+
+        // Act
+        long startedAt = System.nanoTime();
+        limiter.acquire("1", LookupPriority.INTERACTIVE).block();
+
+        // Assert
+        assertTrue(System.nanoTime() - startedAt >= TimeUnit.MILLISECONDS.toNanos(250));
+        assertEquals(1.0, meterRegistry.get("external.ratelimit.throttled").tag("reason", "429").counter().count());
+    }
+
+    @Test
+    void acquire_WhenWaitExceedsLimit_RejectsAndLeavesQueue() {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(100, 10, Duration.ofMillis(50));
+        limiter.onThrottled(Duration.ofSeconds(5));
+
+        // Act & Assert
+        assertThrows(ExternalServiceUnavailableException.class,
+                () -> limiter.acquire("1", LookupPriority.INTERACTIVE).block());
+        assertEquals(1.0, meterRegistry.get("external.ratelimit.rejected").tag("priority", "interactive")
+                .counter().count());
+        assertEquals(0.0, meterRegistry.get("external.ratelimit.queue.depth").tag("priority", "interactive")
+                .gauge().value());
+    }
+
+    @Test
+    void feedback_DecreasesMultiplicativelyAndIncreasesAdditively() {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(10, 10, Duration.ofSeconds(2));
+
+        // Act
+        limiter.onServerError();
+        // Повторный сбой в пределах cooldown не снижает скорость еще раз
+        limiter.onServerError();
+        double afterErrors = limiter.currentRate();
+        limiter.onSuccess();
+
+        // Assert
+        assertEquals(5.0, afterErrors, 0.0001);
+        assertEquals(5.05, limiter.currentRate(), 0.0001);
+    }
+
+    private UpstreamRateLimiter limiter(double rate, double burst, Duration interactiveMaxWait) {
+        return new UpstreamRateLimiter(true, rate, 1, 20, burst, 0.05, 0.5, Duration.ofSeconds(1),
+                Duration.ofSeconds(60), interactiveMaxWait, Duration.ofSeconds(30), meterRegistry);
+    }
+}
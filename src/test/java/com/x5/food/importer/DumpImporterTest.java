@@ -0,0 +1,228 @@
+package com.x5.food.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x5.food.dto.ImportStatusResponse;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.repository.ProductBatchRepository;
+import com.x5.food.service.ProductStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DumpImporterTest {
+
+    @TempDir
+    private Path directory;
+
+    @Mock
+    private ProductStore productStore;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Map<String, ProductResponse> saved = new ConcurrentHashMap<>();
+    private DumpImporter dumpImporter;
+
+    @BeforeEach
+    void setUp() {
+        dumpImporter = new DumpImporter(productStore, new ObjectMapper(), meterRegistry);
+        ReflectionTestUtils.setField(dumpImporter, "directory", directory.toString());
+        ReflectionTestUtils.setField(dumpImporter, "batchSize", 2);
+        ReflectionTestUtils.setField(dumpImporter, "parallelism", 2);
+        ReflectionTestUtils.setField(dumpImporter, "checkpointInterval", Duration.ZERO);
+        ReflectionTestUtils.setField(dumpImporter, "reportInterval", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(dumpImporter, "deadlockRetries", 3);
+    }
+
+    @Test
+    void importFile_GzipJsonl_MapsLikeExternalApiAndSkipsInvalidRecords() throws Exception {
+        // Arrange
+        recordSaves();
+        Path dump = gzip("products.jsonl.gz", List.of(
+                "{\"code\":\"4006381333931\",\"product_name\":\"Milk\",\"quantity\":\"1 l\",\"brands\":\"Dairy\","
+                        + "\"nutriments\":{\"energy-kcal_100g\":64},\"images\":[{\"id\":1}]}",
+                "{\"code\":\"036000291452\",\"product_name\":\"Tissue\"}",
+                "{\"code\":\"4006381333932\",\"product_name\":\"Wrong check digit\"}",
+                "{\"code\":\"5901234123457\",\"product_name\":\"\"}",
+                "{broken"));
+
+        // Act
+        ImportStatusResponse status = dumpImporter.importFile(dump, DumpFormat.JSONL);
+
+        // Assert
+        assertEquals(ImportStatusResponse.State.COMPLETED, status.state());
+        assertEquals(5, status.linesRead());
+        assertEquals(2, status.imported());
+        assertEquals(3, status.skipped());
+        assertEquals(new ProductResponse("SKU_333931", "Milk 1 l", List.of("4006381333931")),
+                saved.get("4006381333931"));
+        // UPC-A сохраняется в канонической форме EAN-13, как и при поиске через API
+        assertEquals(new ProductResponse("SKU_291452", "Tissue", List.of("0036000291452")),
+                saved.get("0036000291452"));
+        assertEquals(2, meterRegistry.get("import.dump.rows").tag("result", "imported").counter().count());
+        assertFalse(Files.exists(checkpointOf(dump)));
+    }
+
+    @Test
+    void importFile_Csv_ReadsColumnsByHeader() throws Exception {
+        // Arrange
+        recordSaves();
+        Path dump = write("products.csv", List.of(
+                "code\turl\tproduct_name\tquantity\tbrands",
+                "4006381333931\thttps://example.org/1\tMilk\t1 l\tDairy",
+                "96385074\thttps://example.org/2\t\t\tNo Name Brand"));
+
+        // Act
+        ImportStatusResponse status = dumpImporter.importFile(dump, DumpFormat.detect(dump));
+
+        // Assert
+        assertEquals(1, status.imported());
+        assertEquals(1, status.skipped());
+        assertEquals("Milk 1 l", saved.get("4006381333931").name());
+    }
+
+    @Test
+    void importFile_WithCheckpoint_ResumesAfterCommittedLines() throws Exception {
+        // Arrange
+        recordSaves();
+        Path dump = write("products.jsonl", List.of(
+                "{\"code\":\"4006381333931\",\"product_name\":\"Already imported\"}",
+                "{\"code\":\"036000291452\",\"product_name\":\"Already imported\"}",
+                "{\"code\":\"96385074\",\"product_name\":\"New\"}"));
+        new ImportCheckpoint(dump).save(2);
+
+        // Act
+        ImportStatusResponse status = dumpImporter.importFile(dump, DumpFormat.JSONL);
+
+        // Assert
+        assertEquals(2, status.resumedFromLine());
+        assertEquals(1, status.linesRead());
+        assertEquals(Map.of("96385074", new ProductResponse("SKU_385074", "New", List.of("96385074"))), saved);
+    }
+
+    @Test
+    void importFile_WhenWriteFails_StopsAndKeepsCheckpoint() throws Exception {
+        // Arrange
+        doThrow(new IllegalStateException("db down")).when(productStore).importAll(anyMap());
+        Path dump = write("products.jsonl", List.of(
+                "{\"code\":\"4006381333931\",\"product_name\":\"Milk\"}",
+                "{\"code\":\"036000291452\",\"product_name\":\"Tissue\"}"));
+
+        // Act
+        ImportStatusResponse status = dumpImporter.importFile(dump, DumpFormat.JSONL);
+
+        // Assert
+        assertEquals(ImportStatusResponse.State.FAILED, status.state());
+        assertTrue(status.error().contains("db down"));
+        assertEquals(0, new ImportCheckpoint(dump).load());
+        assertTrue(Files.exists(checkpointOf(dump)));
+    }
+
+    @Test
+    void importFile_WhenBatchDeadlocks_RetriesIt() throws Exception {
+        // Arrange
+        when(productStore.importAll(anyMap()))
+                .thenThrow(new CannotAcquireLockException("deadlock", new SQLException("deadlock detected", "40P01")))
+                .thenReturn(new ProductBatchRepository.SaveResult(1, 1, 0));
+        Path dump = write("products.jsonl", List.of("{\"code\":\"4006381333931\",\"product_name\":\"Milk\"}"));
+
+        // Act
+        ImportStatusResponse status = dumpImporter.importFile(dump, DumpFormat.JSONL);
+
+        // Assert
+        assertEquals(ImportStatusResponse.State.COMPLETED, status.state());
+        assertEquals(1, status.imported());
+        verify(productStore, times(2)).importAll(anyMap());
+    }
+
+    @Test
+    void importFile_WhenSkuTakenByOtherProduct_ReportsCollision() throws Exception {
+        // Arrange
+        when(productStore.importAll(anyMap())).thenReturn(new ProductBatchRepository.SaveResult(1, 1, 1));
+        Path dump = write("products.jsonl", List.of(
+                "{\"code\":\"4006381333931\",\"product_name\":\"Milk\"}",
+                "{\"code\":\"5006381333930\",\"product_name\":\"Bread\"}"));
+
+        // Act
+        ImportStatusResponse status = dumpImporter.importFile(dump, DumpFormat.JSONL);
+
+        // Assert
+        assertEquals(1, status.imported());
+        assertEquals(1, status.collisions());
+        assertEquals(1, meterRegistry.get("import.dump.rows").tag("result", "collision").counter().count());
+    }
+
+    @Test
+    void importFile_WhenRowsAlreadyExist_DoesNotCountThemAsImported() throws Exception {
+        // Arrange - повторный импорт: ON CONFLICT DO NOTHING не вставляет ни одной строки
+        when(productStore.importAll(anyMap())).thenReturn(new ProductBatchRepository.SaveResult(0, 0, 0));
+        Path dump = write("products.jsonl", List.of(
+                "{\"code\":\"4006381333931\",\"product_name\":\"Milk\"}",
+                "{\"code\":\"036000291452\",\"product_name\":\"Tissue\"}"));
+
+        // Act
+        ImportStatusResponse status = dumpImporter.importFile(dump, DumpFormat.JSONL);
+
+        // Assert
+        assertEquals(ImportStatusResponse.State.COMPLETED, status.state());
+        assertEquals(2, status.linesRead());
+        assertEquals(0, status.imported());
+        assertEquals(0, meterRegistry.get("import.dump.rows").tag("result", "imported").counter().count());
+    }
+
+    @Test
+    void isDeadlock_LooksThroughCauseChain() {
+        // Assert
+        assertTrue(DumpImporter.isDeadlock(new RuntimeException(new SQLException("deadlock detected", "40P01"))));
+        assertFalse(DumpImporter.isDeadlock(new RuntimeException(new SQLException("unique violation", "23505"))));
+    }
+
+    private void recordSaves() {
+        doAnswer(invocation -> {
+            Map<String, ProductResponse> batch = invocation.getArgument(0);
+            saved.putAll(batch);
+            return new ProductBatchRepository.SaveResult(batch.size(), batch.size(), 0);
+        }).when(productStore).importAll(anyMap());
+    }
+
+    private Path write(String name, List<String> lines) throws IOException {
+        return Files.write(directory.resolve(name), lines, StandardCharsets.UTF_8);
+    }
+
+    private Path gzip(String name, List<String> lines) throws IOException {
+        Path file = directory.resolve(name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private static Path checkpointOf(Path dump) {
+        return dump.resolveSibling(dump.getFileName() + ".checkpoint");
+    }
+}
@@ -0,0 +1,30 @@
+package com.x5.food.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_HasNoFalseNegativesAndBoundedFalsePositives() {
+        // Arrange
+        int entries = 100_000;
+        BloomFilter filter = new BloomFilter(entries, 0.01);
+        for (int i = 0; i < entries; i++) {
+            filter.put(BarcodeIndex.encode(String.valueOf(4_600_000_000_000L + i)));
+        }
+
+        // Act
+        int falsePositives = 0;
+        for (int i = 0; i < entries; i++) {
+            assertTrue(filter.mightContain(BarcodeIndex.encode(String.valueOf(4_600_000_000_000L + i))));
+            if (filter.mightContain(BarcodeIndex.encode(String.valueOf(4_700_000_000_000L + i)))) {
+                falsePositives++;
+            }
+        }
+
+        // Assert - с запасом относительно целевых 1%
+        assertTrue(falsePositives < entries * 0.02, "false positives: " + falsePositives);
+    }
+}
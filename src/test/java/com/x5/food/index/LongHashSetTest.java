@@ -0,0 +1,66 @@
+package com.x5.food.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void addContainsRemove_MatchesHashSetUnderRandomOperations(boolean offHeap) {
+        // Arrange - маленькая начальная емкость, чтобы проверить рост и сдвиг цепочек при удалении
+        LongHashSet set = new LongHashSet(16, offHeap);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        // Act
+        for (int i = 0; i < 50_000; i++) {
+            long key = BarcodeIndex.encode(String.valueOf(4_600_000_000_000L + random.nextInt(5_000)));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                assertEquals(expected.add(key), set.add(key));
+            }
+        }
+
+        // Assert
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < 5_000; i++) {
+            long key = BarcodeIndex.encode(String.valueOf(4_600_000_000_000L + i));
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+
+    @Test
+    void tableSizeFor_KeepsTableWithinTwiceLoadFactorBound() {
+        // Act
+        int capacity = LongHashSet.tableSizeFor(1_000_000);
+
+        // Assert - степень двойки не меньше 1e6 / 0.6 и не больше удвоенной
+        assertEquals(2_097_152, capacity);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"0123", "123", "00000123"})
+    void encode_DistinguishesLeadingZeros(String barcode) {
+        // Arrange
+        LongHashSet set = new LongHashSet(16, false);
+        set.add(BarcodeIndex.encode("123"));
+
+        // Act & Assert
+        assertEquals(barcode.equals("123"), set.contains(BarcodeIndex.encode(barcode)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "12a4", "123456789012345"})
+    void encode_WhenNotCompactNumeric_ReturnsNotNumeric(String barcode) {
+        assertEquals(BarcodeIndex.NOT_NUMERIC, BarcodeIndex.encode(barcode));
+    }
+}
@@ -0,0 +1,51 @@
+package com.x5.food.repository;
+
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.dto.projection.ProductProjection;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Transactional
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void findProjectionByBarcode_ReadsProductWithAllBarcodesInOneStatement() {
+        // Arrange - ключ не-GTIN, сохраненный до проверки формата, может содержать запятую
+        jdbcTemplate.update("insert into public.product (sku, name) values (?, ?)", "SKU_TEST_1", "Молоко");
+        jdbcTemplate.update("insert into public.barcode (barcode, sku) values (?, ?), (?, ?)",
+                "4006381333931", "SKU_TEST_1", "LEGACY,42", "SKU_TEST_1");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Act
+        Optional<ProductProjection> projection = productRepository.findProjectionByBarcode("4006381333931");
+
+        // Assert - прежний путь через сущность делал второй запрос за ленивой коллекцией штрих-кодов
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(new ProductResponse("SKU_TEST_1", "Молоко", List.of("4006381333931", "LEGACY,42")),
+                ProductResponse.fromProjection(projection.orElseThrow()));
+    }
+}
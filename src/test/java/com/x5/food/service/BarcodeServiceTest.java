@@ -1,24 +1,34 @@
 package com.x5.food.service;
 
+import com.x5.food.cache.NegativeLookupCache;
+import com.x5.food.cache.ProductCache;
+import com.x5.food.dto.BarcodeStatisticsResponse;
+import com.x5.food.dto.BatchLookupResponse;
 import com.x5.food.dto.ProductResponse;
-import com.x5.food.dto.projection.BarcodeStatisticProjection;
-import com.x5.food.entity.Product;
+import com.x5.food.exception.ExternalServiceUnavailableException;
 import com.x5.food.exception.ResourceNotFoundException;
 import com.x5.food.external.ExternalProductService;
-import com.x5.food.repository.BarcodeRepository;
-import com.x5.food.repository.ProductRepository;
+import com.x5.food.external.LookupPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -29,23 +39,53 @@ class BarcodeServiceTest {
     private final String testSku = "SKU_123";
 
     @Mock
-    private ProductRepository productRepository;
+    private ExternalProductService externalProductService;
 
     @Mock
-    private BarcodeRepository barcodeRepository;
+    private ProductCache productCache;
 
     @Mock
-    private ExternalProductService externalProductService;
+    private NegativeLookupCache negativeLookupCache;
+
+    @Mock
+    private LookupCoalescer lookupCoalescer;
+
+    @Mock
+    private BarcodeStatistics barcodeStatistics;
+
+    @Mock
+    private ProductStore productStore;
+
+    @Mock
+    private ProductWriteBehind productWriteBehind;
+
+    @Mock
+    private ProductRevalidator productRevalidator;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private LookupMetrics lookupMetrics = new LookupMetrics(meterRegistry);
 
     @InjectMocks
     private BarcodeService barcodeService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(barcodeService, "batchParallelism", 4);
+
+        // Coalescer в юнит-тестах просто выполняет загрузку в текущем потоке
+        lenient().when(lookupCoalescer.execute(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<BarcodeService.ResponseWithStatus>>getArgument(1).get());
+    }
+
     @Test
     void getProductByBarcode_WhenProductExistsLocally_ReturnsOkStatus() {
         // Arrange
-        Product productEntity = createProductEntity(testSku, "Test Product");
-        when(productRepository.findByBarcode(testBarcode))
-                .thenReturn(Optional.of(productEntity));
+        ProductResponse localProduct = new ProductResponse(testSku, "Test Product", List.of(testBarcode));
+        Instant fetchedAt = Instant.parse("2026-01-01T00:00:00Z");
+        when(productStore.findByBarcode(testBarcode))
+                .thenReturn(Optional.of(new ProductStore.StoredProduct(localProduct, fetchedAt)));
 
         // Act
         BarcodeService.ResponseWithStatus result = barcodeService.getProductByBarcode(testBarcode);
@@ -55,8 +95,43 @@ class BarcodeServiceTest {
         assertEquals(HttpStatus.OK, result.status());
         assertNotNull(result.response());
         assertEquals(testSku, result.response().sku());
-        verify(productRepository).findByBarcode(testBarcode);
-        verifyNoInteractions(externalProductService, barcodeRepository);
+        verify(productStore).findByBarcode(testBarcode);
+        // Возраст записи кэша - от fetched_at в БД, а не от момента чтения
+        verify(productCache).put(testBarcode, result.response(), fetchedAt);
+        verifyNoInteractions(externalProductService);
+        assertEquals(1, lookupTimerCount("db_hit"));
+    }
+
+    @Test
+    void getProductByBarcode_WhenProductCached_ReturnsOkStatusWithoutDatabase() {
+        // Arrange
+        ProductResponse cachedProduct = new ProductResponse(testSku, "Cached Product", List.of(testBarcode));
+        when(productCache.get(testBarcode)).thenReturn(Optional.of(cachedProduct));
+
+        // Act
+        BarcodeService.ResponseWithStatus result = barcodeService.getProductByBarcode(testBarcode);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.status());
+        assertEquals(cachedProduct, result.response());
+        verifyNoInteractions(productStore, externalProductService, productRevalidator);
+    }
+
+    @Test
+    void getProductByBarcode_WhenCachedEntryDueForRefresh_ReturnsCachedAndSchedulesRevalidation() {
+        // Arrange
+        ProductResponse cachedProduct = new ProductResponse(testSku, "Cached Product", List.of(testBarcode));
+        when(productCache.get(testBarcode)).thenReturn(Optional.of(cachedProduct));
+        when(productCache.isDueForRefresh(testBarcode)).thenReturn(true);
+
+        // Act
+        BarcodeService.ResponseWithStatus result = barcodeService.getProductByBarcode(testBarcode);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.status());
+        assertEquals(cachedProduct, result.response());
+        verify(productRevalidator).requestRefresh(testBarcode, cachedProduct);
+        verifyNoInteractions(productStore, externalProductService);
     }
 
     @Test
@@ -64,7 +139,7 @@ class BarcodeServiceTest {
         // Arrange
         ProductResponse mockProduct = new ProductResponse(testSku, "External Product", List.of(testBarcode));
 
-        when(productRepository.findByBarcode(testBarcode))
+        when(productStore.findByBarcode(testBarcode))
                 .thenReturn(Optional.empty());
         when(externalProductService.getProductByBarcode(testBarcode))
                 .thenReturn(Mono.just(Optional.of(mockProduct)));
@@ -78,16 +153,35 @@ class BarcodeServiceTest {
         assertNotNull(result.response());
         assertEquals(testSku, result.response().sku());
 
-        verify(productRepository).findByBarcode(testBarcode);
+        verify(productStore).findByBarcode(testBarcode);
         verify(externalProductService).getProductByBarcode(testBarcode);
-        verify(productRepository).upsertProduct(testSku, "External Product");
-        verify(barcodeRepository).insertBarcodeIfNotExists(testBarcode, testSku);
+        verify(productStore).save(mockProduct, testBarcode);
+        verify(productCache).put(testBarcode, mockProduct);
+        assertEquals(1, lookupTimerCount("external_created"));
+        assertEquals(1, meterRegistry.get("barcode.persist").tag("mode", "single").timer().count());
+    }
+
+    @Test
+    void getProductByBarcode_WhenWriteBehindAcceptsProduct_SkipsSynchronousSave() {
+        // Arrange
+        ProductResponse mockProduct = new ProductResponse(testSku, "External Product", List.of(testBarcode));
+        when(externalProductService.getProductByBarcode(testBarcode))
+                .thenReturn(Mono.just(Optional.of(mockProduct)));
+        when(productWriteBehind.submit(testBarcode, mockProduct)).thenReturn(true);
+
+        // Act
+        BarcodeService.ResponseWithStatus result = barcodeService.getProductByBarcode(testBarcode);
+
+        // Assert
+        assertEquals(HttpStatus.CREATED, result.status());
+        verify(productStore, never()).save(any(), anyString());
+        verify(productCache).put(testBarcode, mockProduct);
     }
 
     @Test
     void getProductByBarcode_WhenProductNotExistsAnywhere_ReturnsNotFoundStatus() {
         // Arrange
-        when(productRepository.findByBarcode(testBarcode))
+        when(productStore.findByBarcode(testBarcode))
                 .thenReturn(Optional.empty());
         when(externalProductService.getProductByBarcode(testBarcode))
                 .thenReturn(Mono.just(Optional.empty()));
@@ -100,70 +194,167 @@ class BarcodeServiceTest {
         assertEquals(HttpStatus.NOT_FOUND, result.status());
         assertNull(result.response());
 
-        verify(productRepository).findByBarcode(testBarcode);
+        verify(productStore).findByBarcode(testBarcode);
         verify(externalProductService).getProductByBarcode(testBarcode);
-        verifyNoMoreInteractions(productRepository, barcodeRepository);
+        verify(negativeLookupCache).markMissing(testBarcode);
+        verify(productStore, never()).save(any(), anyString());
     }
 
     @Test
-    void getBarcodeAndSkuCounts_WhenDataExists_ReturnsStatistics() {
+    void getProductByBarcode_WhenIndexMissedRowOfAnotherInstance_ReturnsItInsteadOfNotFound() {
+        // Arrange - строку записал другой экземпляр после последней перезагрузки индекса
+        ProductResponse storedProduct = new ProductResponse(testSku, "Imported Product", List.of(testBarcode));
+        Instant fetchedAt = Instant.parse("2024-01-01T00:00:00Z");
+        when(productStore.findByBarcode(testBarcode)).thenReturn(Optional.empty());
+        when(externalProductService.getProductByBarcode(testBarcode))
+                .thenReturn(Mono.just(Optional.empty()));
+        when(productStore.recheckSkipped(testBarcode))
+                .thenReturn(Optional.of(new ProductStore.StoredProduct(storedProduct, fetchedAt)));
+
+        // Act
+        BarcodeService.ResponseWithStatus result = barcodeService.getProductByBarcode(testBarcode);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.status());
+        assertEquals(storedProduct, result.response());
+        verify(productCache).put(testBarcode, storedProduct, fetchedAt);
+        verify(negativeLookupCache, never()).markMissing(anyString());
+    }
+
+    @Test
+    void getProductByBarcode_WhenKnownMissing_ReturnsNotFoundWithoutLookups() {
         // Arrange
-        BarcodeStatisticProjection stats = mock(BarcodeStatisticProjection.class);
-        when(barcodeRepository.getBarcodeStatistics()).thenReturn(Optional.of(stats));
+        when(negativeLookupCache.isKnownMissing(testBarcode)).thenReturn(true);
 
         // Act
-        Optional<BarcodeStatisticProjection> result = barcodeService.getBarcodeAndSkuCounts();
+        BarcodeService.ResponseWithStatus result = barcodeService.getProductByBarcode(testBarcode);
 
         // Assert
-        assertTrue(result.isPresent());
-        assertEquals(stats, result.get());
-        verify(barcodeRepository).getBarcodeStatistics();
+        assertEquals(HttpStatus.NOT_FOUND, result.status());
+        assertNull(result.response());
+        verifyNoInteractions(productStore, externalProductService);
     }
 
     @Test
-    void getBarcodeAndSkuCounts_WhenNoData_ReturnsEmpty() {
+    void getProductByBarcode_WhenExternalUnavailable_ReturnsServiceUnavailableWithoutNegativeCaching() {
         // Arrange
-        when(barcodeRepository.getBarcodeStatistics()).thenReturn(Optional.empty());
+        when(productStore.findByBarcode(testBarcode))
+                .thenReturn(Optional.empty());
+        when(externalProductService.getProductByBarcode(testBarcode))
+                .thenReturn(Mono.error(new ExternalServiceUnavailableException("down", null)));
 
         // Act
-        Optional<BarcodeStatisticProjection> result = barcodeService.getBarcodeAndSkuCounts();
+        BarcodeService.ResponseWithStatus result = barcodeService.getProductByBarcode(testBarcode);
 
         // Assert
-        assertFalse(result.isPresent());
-        verify(barcodeRepository).getBarcodeStatistics();
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, result.status());
+        verify(negativeLookupCache, never()).markMissing(anyString());
+    }
+
+    @Test
+    void getProductsByBarcodes_ResolvesFromDatabaseExternalAndNotFound() {
+        // Arrange
+        String dbBarcode = "111";
+        String externalBarcode = "222";
+        String missingBarcode = "333";
+        String unavailableBarcode = "555";
+
+        ProductResponse dbProduct = new ProductResponse("SKU_111", "DB Product", List.of("111", "444"));
+        when(productStore.findAllByBarcodes(List.of(dbBarcode, externalBarcode, missingBarcode, unavailableBarcode)))
+                .thenReturn(Map.of(dbBarcode, new ProductStore.StoredProduct(dbProduct, Instant.EPOCH)));
+
+        ProductResponse externalProduct = new ProductResponse("SKU_222", "External Product", List.of(externalBarcode));
+        when(externalProductService.getProductByBarcode(externalBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.just(Optional.of(externalProduct)));
+        when(externalProductService.getProductByBarcode(missingBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.just(Optional.empty()));
+        when(externalProductService.getProductByBarcode(unavailableBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.error(new ExternalServiceUnavailableException("circuit open", null)));
+
+        // Act
+        BatchLookupResponse result = barcodeService.getProductsByBarcodes(
+                List.of(dbBarcode, externalBarcode, missingBarcode, dbBarcode, unavailableBarcode));
+
+        // Assert - дубликаты схлопнуты, порядок сохранен
+        assertEquals(4, result.items().size());
+        assertEquals(BatchLookupResponse.Source.DB, result.items().get(0).source());
+        assertEquals(List.of("111", "444"), result.items().get(0).product().barcodes());
+        assertEquals(BatchLookupResponse.Source.EXTERNAL, result.items().get(1).source());
+        assertEquals(201, result.items().get(1).status());
+        assertEquals(BatchLookupResponse.Source.NOT_FOUND, result.items().get(2).source());
+        assertEquals(BatchLookupResponse.Source.UPSTREAM_UNAVAILABLE, result.items().get(3).source());
+        assertEquals(503, result.items().get(3).status());
+
+        verify(productStore, never()).findByBarcode(anyString());
+        verify(productStore).saveAll(Map.of(externalBarcode, externalProduct));
+        verify(productCache).put(externalBarcode, externalProduct);
+        verify(negativeLookupCache).markMissing(missingBarcode);
+        verify(negativeLookupCache, never()).markMissing(unavailableBarcode);
+
+        assertEquals(1, meterRegistry.get("barcode.lookup.batch").timer().count());
+        assertEquals(1, batchItemCount("db_hit"));
+        assertEquals(1, batchItemCount("external_created"));
+        assertEquals(1, batchItemCount("not_found"));
+        assertEquals(1, batchItemCount("upstream_error"));
+        assertEquals(1, meterRegistry.get("barcode.persist").tag("mode", "batch").timer().count());
+    }
+
+    @Test
+    void getBarcodeAndSkuCounts_ReturnsIncrementalSnapshotWithoutQuery() {
+        // Arrange
+        BarcodeStatisticsResponse stats = new BarcodeStatisticsResponse(10, 4, Instant.now(), 600);
+        when(barcodeStatistics.snapshot()).thenReturn(stats);
+
+        // Act
+        BarcodeStatisticsResponse result = barcodeService.getBarcodeAndSkuCounts();
+
+        // Assert
+        assertEquals(stats, result);
+        verify(barcodeStatistics, never()).recompute();
+    }
+
+    @Test
+    void recomputeBarcodeAndSkuCounts_DelegatesToFullRecompute() {
+        // Arrange
+        BarcodeStatisticsResponse stats = new BarcodeStatisticsResponse(10, 4, Instant.now(), 600);
+        when(barcodeStatistics.recompute()).thenReturn(stats);
+
+        // Act & Assert
+        assertEquals(stats, barcodeService.recomputeBarcodeAndSkuCounts());
     }
 
     @Test
     void deleteBarcodeById_WhenBarcodeExists_DeletesSuccessfully() {
         // Arrange
-        when(barcodeRepository.existsByBarcode(testBarcode)).thenReturn(true);
+        when(productStore.delete(testBarcode)).thenReturn(Optional.of(testSku));
 
         // Act
         assertDoesNotThrow(() -> barcodeService.deleteBarcodeById(testBarcode));
 
         // Assert
-        verify(barcodeRepository).existsByBarcode(testBarcode);
-        verify(barcodeRepository).deleteById(testBarcode);
+        verify(productStore).delete(testBarcode);
+        verify(productCache).evictSku(testSku);
     }
 
     @Test
     void deleteBarcodeById_WhenBarcodeNotExists_ThrowsException() {
         // Arrange
-        when(barcodeRepository.existsByBarcode(testBarcode)).thenReturn(false);
+        when(productStore.delete(testBarcode)).thenReturn(Optional.empty());
 
         // Act & Assert
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
                 () -> barcodeService.deleteBarcodeById(testBarcode));
 
         assertEquals("Штрих-код не найден", exception.getMessage());
-        verify(barcodeRepository).existsByBarcode(testBarcode);
-        verify(barcodeRepository, never()).deleteById(anyString());
+        verify(productStore).delete(testBarcode);
+        verify(productCache, never()).evictSku(anyString());
+    }
+
+    private long lookupTimerCount(String outcome) {
+        return meterRegistry.get("barcode.lookup").tag("outcome", outcome).timer().count();
     }
 
-    private Product createProductEntity(String sku, String name) {
-        Product product = new Product();
-        product.setSku(sku);
-        product.setName(name);
-        return product;
+    private double batchItemCount(String outcome) {
+        return meterRegistry.get("barcode.lookup.batch.items").tag("outcome", outcome).counter().count();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+package com.x5.food.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.x5.food.cache.CacheWarmup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.actuate.health.CompositeHealth;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.info.InfoEndpoint;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HealthSnapshotServiceTest {
+
+    @Mock
+    private HealthEndpoint healthEndpoint;
+
+    @Mock
+    private InfoEndpoint infoEndpoint;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private CacheWarmup cacheWarmup;
+
+    @InjectMocks
+    private HealthSnapshotService healthSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(healthSnapshotService, "maxStaleness", Duration.ofMinutes(1));
+        when(infoEndpoint.info()).thenReturn(Map.of("app", Map.of("name", "barcode-service")));
+        lenient().when(cacheWarmup.getState()).thenReturn(CacheWarmup.State.READY);
+        lenient().when(cacheWarmup.getSource()).thenReturn("no snapshot");
+        lenient().when(cacheWarmup.isReady()).thenReturn(true);
+    }
+
+    private void stubHealthUp() {
+        CompositeHealth overall = overallHealth(Health.up().build());
+        when(healthEndpoint.health()).thenReturn(overall);
+    }
+
+    // Общий ответ со всеми индикаторами, как у HealthEndpoint.health()
+    private static CompositeHealth overallHealth(Health db) {
+        CompositeHealth overall = mock(CompositeHealth.class);
+        lenient().when(overall.getStatus()).thenReturn(db.getStatus());
+        lenient().when(overall.getComponents()).thenReturn(Map.of("db", db));
+        return overall;
+    }
+
+    @Test
+    void current_BuildsStatusFromInProcessContributors() {
+        // Arrange
+        stubHealthUp();
+
+        // Act
+        JsonNode status = healthSnapshotService.current();
+
+        // Assert
+        assertEquals("OK", status.path("status").asText());
+        assertEquals("barcode-service", status.path("app").path("name").asText());
+        assertEquals("UP", status.path("database").path("overall_status").asText());
+        assertEquals("UP", status.path("database").path("db_status").asText());
+        assertTrue(status.path("database").path("connected").asBoolean());
+        assertTrue(status.path("jvm").has("processors"));
+        verify(healthEndpoint, never()).healthForPath(any(String[].class));
+    }
+
+    @Test
+    void current_WithinMaxStaleness_ServesSnapshotWithoutQueryingHealth() {
+        // Arrange
+        stubHealthUp();
+        healthSnapshotService.refresh();
+
+        // Act
+        JsonNode first = healthSnapshotService.current();
+        JsonNode second = healthSnapshotService.current();
+
+        // Assert
+        assertSame(first, second);
+        verify(healthEndpoint, times(1)).health();
+    }
+
+    @Test
+    void current_WhenSnapshotStale_RefreshesInline() {
+        // Arrange
+        stubHealthUp();
+        ReflectionTestUtils.setField(healthSnapshotService, "maxStaleness", Duration.ZERO);
+        JsonNode first = healthSnapshotService.current();
+        CompositeHealth dbDown = overallHealth(Health.down().build());
+        when(healthEndpoint.health()).thenReturn(dbDown);
+
+        // Act
+        JsonNode second = healthSnapshotService.current();
+
+        // Assert
+        assertNotSame(first, second);
+        assertEquals("DOWN", second.path("database").path("db_status").asText());
+        assertFalse(second.path("database").path("connected").asBoolean());
+    }
+
+    @Test
+    void refresh_WhenHealthFails_KeepsServingWithError() {
+        // Arrange
+        when(healthEndpoint.health()).thenThrow(new IllegalStateException("boom"));
+
+        // Act
+        healthSnapshotService.refresh();
+        JsonNode status = healthSnapshotService.current();
+
+        // Assert
+        assertEquals("OK", status.path("status").asText());
+        assertEquals("Cannot extract DB status", status.path("database").path("error").asText());
+    }
+
+    @Test
+    void current_WhileCacheWarmingUp_ReportsProgressAndRefreshesWhenDone() {
+        // Arrange
+        stubHealthUp();
+        when(cacheWarmup.isReady()).thenReturn(false, true);
+        when(cacheWarmup.getState()).thenReturn(CacheWarmup.State.LOADING, CacheWarmup.State.READY);
+        when(cacheWarmup.getLoaded()).thenReturn(500L);
+        when(cacheWarmup.getTotal()).thenReturn(1000L);
+        when(cacheWarmup.getProgressPercent()).thenReturn(50, 100);
+
+        // Act
+        JsonNode warming = healthSnapshotService.current();
+        JsonNode warmed = healthSnapshotService.current();
+
+        // Assert
+        assertEquals("WARMING_UP", warming.path("status").asText());
+        assertEquals("LOADING", warming.path("cache_warmup").path("state").asText());
+        assertEquals(50, warming.path("cache_warmup").path("progress_percent").asInt());
+        assertEquals("OK", warmed.path("status").asText());
+        assertEquals(100, warmed.path("cache_warmup").path("progress_percent").asInt());
+    }
+}
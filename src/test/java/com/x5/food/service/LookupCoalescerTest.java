@@ -0,0 +1,124 @@
+package com.x5.food.service;
+
+import com.x5.food.dto.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LookupCoalescer lookupCoalescer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lookupCoalescer = new LookupCoalescer(meterRegistry);
+    }
+
+    @Test
+    void execute_WithConcurrentCallsForSameBarcode_LoadsOnce() throws Exception {
+        // Arrange
+        BarcodeService.ResponseWithStatus expected = new BarcodeService.ResponseWithStatus(HttpStatus.CREATED,
+                new ProductResponse("SKU_1", "Молоко 1л", List.of("111")));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // Act
+            Future<BarcodeService.ResponseWithStatus> leader = executor.submit(() ->
+                    lookupCoalescer.execute("111", () -> {
+                        loads.incrementAndGet();
+                        leaderStarted.countDown();
+                        await(release);
+                        return expected;
+                    }));
+            assertTrue(leaderStarted.await(5, TimeUnit.SECONDS));
+
+            Future<BarcodeService.ResponseWithStatus> follower = executor.submit(() ->
+                    lookupCoalescer.execute("111", () -> {
+                        loads.incrementAndGet();
+                        return expected;
+                    }));
+
+            // Ждем, пока второй запрос присоединится к первому
+            while (meterRegistry.get("barcode.lookup.coalesced").counter().count() < 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            // Assert
+            assertEquals(expected, leader.get(5, TimeUnit.SECONDS));
+            assertEquals(expected, follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+            assertEquals(0.0, meterRegistry.get("barcode.lookup.in-flight").gauge().value());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_WhenLoaderFails_PropagatesAndAllowsRetry() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> lookupCoalescer.execute("111", () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        BarcodeService.ResponseWithStatus result = lookupCoalescer.execute("111",
+                () -> new BarcodeService.ResponseWithStatus(HttpStatus.NOT_FOUND, null));
+        assertEquals(HttpStatus.NOT_FOUND, result.status());
+        assertEquals(2.0, meterRegistry.get("barcode.lookup.executed").counter().count());
+    }
+
+    @Test
+    void executeReactive_WhenLeaderCancels_FollowerStillGetsResult() {
+        // Arrange
+        BarcodeService.ResponseWithStatus expected = new BarcodeService.ResponseWithStatus(HttpStatus.OK,
+                new ProductResponse("SKU_1", "Молоко 1л", List.of("111")));
+        Sinks.One<BarcodeService.ResponseWithStatus> upstream = Sinks.one();
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act
+        lookupCoalescer.executeReactive("111", () -> {
+            loads.incrementAndGet();
+            return upstream.asMono();
+        }).subscribe().dispose();
+        Mono<BarcodeService.ResponseWithStatus> follower = lookupCoalescer.executeReactive("111", () -> {
+            loads.incrementAndGet();
+            return Mono.just(expected);
+        });
+
+        // Assert
+        StepVerifier.create(follower)
+                .then(() -> upstream.tryEmitValue(expected))
+                .expectNext(expected)
+                .verifyComplete();
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("barcode.lookup.coalesced").counter().count());
+        assertEquals(0.0, meterRegistry.get("barcode.lookup.in-flight").gauge().value());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.x5.food.service;
+
+import com.x5.food.cache.ProductCache;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import com.x5.food.external.ExternalProductService;
+import com.x5.food.external.LookupPriority;
+import com.x5.food.repository.ProductBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductRevalidatorTest {
+
+    private final String testBarcode = "4600000000001";
+    private final String testSku = "SKU_4600000000001";
+
+    @Mock
+    private ExternalProductService externalProductService;
+
+    @Mock
+    private ProductStore productStore;
+
+    @Mock
+    private ProductCache productCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductRevalidator productRevalidator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productRevalidator = new ProductRevalidator(externalProductService, productStore, productCache, meterRegistry);
+        ReflectionTestUtils.setField(productRevalidator, "rate", 1000.0);
+        ReflectionTestUtils.setField(productRevalidator, "sweepMaxAge", Duration.ofDays(30));
+        ReflectionTestUtils.setField(productRevalidator, "sweepBatchSize", 10);
+        ReflectionTestUtils.setField(productRevalidator, "sweepMaxDuration", Duration.ofMinutes(1));
+    }
+
+    @Test
+    void revalidate_WhenNameChangedUpstream_SavesNewNameKeepingLocalBarcodes() {
+        // Arrange
+        ProductResponse current = new ProductResponse(testSku, "Молоко", List.of(testBarcode, "4600000000002"));
+        when(externalProductService.getProductByBarcode(testBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.just(Optional.of(new ProductResponse(testSku, "Молоко 3,2%", List.of(testBarcode)))));
+        when(productStore.updateName(testSku, "Молоко 3,2%")).thenReturn(true);
+
+        // Act
+        ProductResponse result = productRevalidator.revalidate(testBarcode, current, "refresh_ahead");
+
+        // Assert
+        ProductResponse expected = new ProductResponse(testSku, "Молоко 3,2%", current.barcodes());
+        assertEquals(expected, result);
+        verify(productStore, never()).saveAll(anyMap());
+        verify(productCache).evictSku(testSku);
+        verify(productStore, never()).markFetched(any());
+        assertEquals(1.0, revalidationCount("refresh_ahead", "updated"));
+    }
+
+    @Test
+    void revalidate_WhenProductDeletedMeanwhile_DoesNotRecreateIt() {
+        // Arrange
+        ProductResponse current = new ProductResponse(testSku, "Молоко", List.of(testBarcode));
+        when(externalProductService.getProductByBarcode(testBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.just(Optional.of(new ProductResponse(testSku, "Молоко 3,2%", List.of(testBarcode)))));
+        when(productStore.updateName(testSku, "Молоко 3,2%")).thenReturn(false);
+
+        // Act
+        productRevalidator.revalidate(testBarcode, current, "sweep");
+
+        // Assert
+        verify(productStore, never()).saveAll(anyMap());
+        verify(productCache).evictSku(testSku);
+        assertEquals(1.0, revalidationCount("sweep", "deleted"));
+    }
+
+    @Test
+    void revalidate_WhenNameUnchanged_OnlyMarksFetched() {
+        // Arrange
+        ProductResponse current = new ProductResponse(testSku, "Молоко", List.of(testBarcode));
+        when(externalProductService.getProductByBarcode(testBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.just(Optional.of(current)));
+
+        // Act
+        ProductResponse result = productRevalidator.revalidate(testBarcode, current, "refresh_ahead");
+
+        // Assert
+        assertSame(current, result);
+        verify(productStore).markFetched(Set.of(testSku));
+        verify(productStore, never()).updateName(anyString(), anyString());
+        verifyNoInteractions(productCache);
+        assertEquals(1.0, revalidationCount("refresh_ahead", "unchanged"));
+    }
+
+    @Test
+    void revalidate_WhenNotFoundUpstream_KeepsLocalProduct() {
+        // Arrange
+        ProductResponse current = new ProductResponse(testSku, "Молоко", List.of(testBarcode));
+        when(externalProductService.getProductByBarcode(testBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.just(Optional.empty()));
+
+        // Act
+        ProductResponse result = productRevalidator.revalidate(testBarcode, current, "sweep");
+
+        // Assert
+        assertSame(current, result);
+        verify(productStore).markFetched(Set.of(testSku));
+        verify(productStore, never()).updateName(anyString(), anyString());
+        assertEquals(1.0, revalidationCount("sweep", "not_found"));
+    }
+
+    @Test
+    void revalidate_WhenUpstreamUnavailable_ReturnsNullWithoutWrites() {
+        // Arrange
+        ProductResponse current = new ProductResponse(testSku, "Молоко", List.of(testBarcode));
+        when(externalProductService.getProductByBarcode(testBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.error(new ExternalServiceUnavailableException("down", null)));
+
+        // Act
+        ProductResponse result = productRevalidator.revalidate(testBarcode, current, "refresh_ahead");
+
+        // Assert
+        assertNull(result);
+        verifyNoInteractions(productStore, productCache);
+        assertEquals(1.0, revalidationCount("refresh_ahead", "unavailable"));
+    }
+
+    @Test
+    void runSweep_WhenUpstreamUnavailable_StopsWithoutTouchingRemainingRows() {
+        // Arrange
+        when(productStore.findLeastRecentlyFetched(any(Instant.class), anyInt())).thenReturn(List.of(
+                new ProductBatchRepository.StaleProduct(testSku, "Молоко", testBarcode),
+                new ProductBatchRepository.StaleProduct("SKU_2", "Хлеб", "4600000000099")));
+        when(externalProductService.getProductByBarcode(anyString(), eq(LookupPriority.BATCH)))
+                .thenReturn(Mono.error(new ExternalServiceUnavailableException("down", null)));
+
+        // Act
+        productRevalidator.runSweep();
+
+        // Assert
+        verify(externalProductService, times(1)).getProductByBarcode(anyString(), eq(LookupPriority.BATCH));
+        verify(productStore, never()).markFetched(any());
+        assertEquals(1.0, revalidationCount("sweep", "unavailable"));
+    }
+
+    @Test
+    void runSweep_RevalidatesOldestRowsUntilNoneLeft() {
+        // Arrange
+        when(productStore.findLeastRecentlyFetched(any(Instant.class), eq(10)))
+                .thenReturn(List.of(new ProductBatchRepository.StaleProduct(testSku, "Молоко", testBarcode)))
+                .thenReturn(List.of());
+        when(externalProductService.getProductByBarcode(testBarcode, LookupPriority.BATCH))
+                .thenReturn(Mono.just(Optional.of(new ProductResponse(testSku, "Молоко", List.of(testBarcode)))));
+
+        // Act
+        productRevalidator.runSweep();
+
+        // Assert
+        verify(productStore).markFetched(Set.of(testSku));
+        verify(productStore, times(2)).findLeastRecentlyFetched(any(Instant.class), eq(10));
+        assertEquals(1.0, revalidationCount("sweep", "unchanged"));
+    }
+
+    @Test
+    void requestRefresh_WhenDisabled_ReturnsFalse() {
+        // Act
+        productRevalidator.start();
+
+        // Assert
+        assertFalse(productRevalidator.requestRefresh(testBarcode,
+                new ProductResponse(testSku, "Молоко", List.of(testBarcode))));
+        verifyNoInteractions(externalProductService);
+    }
+
+    private double revalidationCount(String trigger, String outcome) {
+        return meterRegistry.get("product.revalidation")
+                .tag("trigger", trigger)
+                .tag("outcome", outcome)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,276 @@
+package com.x5.food.service;
+
+import com.x5.food.cache.NegativeLookupCache;
+import com.x5.food.cache.ProductCache;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.dto.projection.ProductProjection;
+import com.x5.food.index.BarcodeIndex;
+import com.x5.food.repository.BarcodeRepository;
+import com.x5.food.repository.ProductBatchRepository;
+import com.x5.food.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductStoreTest {
+
+    private final String testBarcode = "1234567890";
+    private final String testSku = "SKU_123";
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private BarcodeRepository barcodeRepository;
+
+    @Mock
+    private ProductBatchRepository productBatchRepository;
+
+    @Mock
+    private BarcodeStatistics barcodeStatistics;
+
+    @Mock
+    private BarcodeIndex barcodeIndex;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private NegativeLookupCache negativeLookupCache;
+
+    @InjectMocks
+    private ProductStore productStore;
+
+    @Test
+    void findByBarcode_WhenProductExists_MapsProjectionWithAllBarcodes() {
+        // Arrange
+        ProductProjection projection = mock(ProductProjection.class);
+        when(projection.getSku()).thenReturn(testSku);
+        when(projection.getName()).thenReturn("Test Product");
+        when(projection.getBarcodes()).thenReturn(new String[]{testBarcode, "4600000000001"});
+        when(projection.getFetchedAt()).thenReturn(Instant.parse("2026-01-01T00:00:00Z"));
+        when(barcodeIndex.mightContain(testBarcode)).thenReturn(true);
+        when(productRepository.findProjectionByBarcode(testBarcode)).thenReturn(Optional.of(projection));
+
+        // Act
+        Optional<ProductStore.StoredProduct> result = productStore.findByBarcode(testBarcode);
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals(new ProductResponse(testSku, "Test Product", List.of(testBarcode, "4600000000001")),
+                result.get().product());
+        assertEquals(Instant.parse("2026-01-01T00:00:00Z"), result.get().fetchedAt());
+    }
+
+    @Test
+    void findByBarcode_WhenRowHasNoFetchedAt_TreatsItAsLongAgo() {
+        // Arrange - строка, записанная до появления колонки fetched_at
+        ProductProjection projection = mock(ProductProjection.class);
+        when(projection.getSku()).thenReturn(testSku);
+        when(projection.getName()).thenReturn("Test Product");
+        when(projection.getBarcodes()).thenReturn(new String[]{testBarcode});
+        when(barcodeIndex.mightContain(testBarcode)).thenReturn(true);
+        when(productRepository.findProjectionByBarcode(testBarcode)).thenReturn(Optional.of(projection));
+
+        // Act
+        Optional<ProductStore.StoredProduct> result = productStore.findByBarcode(testBarcode);
+
+        // Assert
+        assertEquals(Instant.EPOCH, result.orElseThrow().fetchedAt());
+    }
+
+    @Test
+    void findByBarcode_WhenIndexKnowsBarcodeIsAbsent_SkipsDatabase() {
+        // Arrange
+        when(barcodeIndex.mightContain(testBarcode)).thenReturn(false);
+
+        // Act
+        Optional<ProductStore.StoredProduct> result = productStore.findByBarcode(testBarcode);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void recheckSkipped_WhenIndexSkippedExistingRow_ReturnsItAndAddsToIndex() {
+        // Arrange
+        ProductProjection projection = mock(ProductProjection.class);
+        when(projection.getSku()).thenReturn(testSku);
+        when(projection.getName()).thenReturn("Test Product");
+        when(projection.getBarcodes()).thenReturn(new String[]{testBarcode});
+        when(barcodeIndex.isKnownAbsent(testBarcode)).thenReturn(true);
+        when(productRepository.findProjectionByBarcode(testBarcode)).thenReturn(Optional.of(projection));
+
+        // Act
+        Optional<ProductStore.StoredProduct> result = productStore.recheckSkipped(testBarcode);
+
+        // Assert
+        assertEquals(testSku, result.orElseThrow().product().sku());
+        verify(barcodeIndex).add(testBarcode);
+    }
+
+    @Test
+    void recheckSkipped_WhenDatabaseAlreadyAnswered_SkipsQuery() {
+        // Arrange
+        when(barcodeIndex.isKnownAbsent(testBarcode)).thenReturn(false);
+
+        // Act & Assert
+        assertTrue(productStore.recheckSkipped(testBarcode).isEmpty());
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void findAllByBarcodes_QueriesOnlyBarcodesThatMayExist() {
+        // Arrange
+        when(barcodeIndex.mightContain(testBarcode)).thenReturn(true);
+        when(barcodeIndex.mightContain("4600000000001")).thenReturn(false);
+        when(productRepository.findAllByBarcodes(List.of(testBarcode))).thenReturn(List.of());
+
+        // Act
+        Map<String, ProductStore.StoredProduct> result = productStore.findAllByBarcodes(List.of(testBarcode, "4600000000001"));
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(productRepository).findAllByBarcodes(List.of(testBarcode));
+    }
+
+    @Test
+    void save_UpsertsProductAndInsertsBarcode() {
+        // Arrange
+        when(barcodeRepository.insertBarcodeIfNotExists(testBarcode, testSku)).thenReturn(1);
+        when(barcodeRepository.countBySku(testSku)).thenReturn(1L);
+
+        // Act
+        productStore.save(new ProductResponse(testSku, "External Product", List.of(testBarcode)), testBarcode);
+
+        // Assert
+        verify(productRepository).upsertProduct(testSku, "External Product");
+        verify(barcodeRepository).insertBarcodeIfNotExists(testBarcode, testSku);
+        verify(barcodeStatistics).recordInserted(1, 1);
+        verify(barcodeIndex).add(testBarcode);
+    }
+
+    @Test
+    void save_WhenBarcodeAlreadyExists_DoesNotChangeStatistics() {
+        // Arrange
+        when(barcodeRepository.insertBarcodeIfNotExists(testBarcode, testSku)).thenReturn(0);
+
+        // Act
+        productStore.save(new ProductResponse(testSku, "External Product", List.of(testBarcode)), testBarcode);
+
+        // Assert
+        verifyNoInteractions(barcodeStatistics);
+    }
+
+    @Test
+    void saveAll_RecordsInsertedRowsFromBatch() {
+        // Arrange
+        Map<String, ProductResponse> products =
+                Map.of(testBarcode, new ProductResponse(testSku, "External Product", List.of(testBarcode)));
+        when(productBatchRepository.saveAll(products)).thenReturn(new ProductBatchRepository.SaveResult(1, 0, 0));
+
+        // Act
+        productStore.saveAll(products);
+
+        // Assert
+        verify(barcodeStatistics).recordInserted(1, 0);
+        verify(productCache).evictSkus(Set.of(testSku));
+        verify(negativeLookupCache).invalidate(testBarcode);
+    }
+
+    @Test
+    void save_InTransaction_EvictsSkuOnlyAfterCommit() {
+        // Arrange
+        when(barcodeRepository.insertBarcodeIfNotExists(testBarcode, testSku)).thenReturn(0);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            productStore.save(new ProductResponse(testSku, "External Product", List.of(testBarcode)), testBarcode);
+
+            // Assert - поиск до коммита не должен закэшировать старый состав штрих-кодов без сброса после
+            verifyNoInteractions(productCache, negativeLookupCache);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(productCache).evictSku(testSku);
+            verify(negativeLookupCache).invalidate(testBarcode);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void importAll_ReturnsCollisionsAndRecordsInsertedRows() {
+        // Arrange
+        Map<String, ProductResponse> products =
+                Map.of(testBarcode, new ProductResponse(testSku, "External Product", List.of(testBarcode)));
+        when(productBatchRepository.insertAll(products)).thenReturn(new ProductBatchRepository.SaveResult(0, 0, 1));
+
+        // Act
+        ProductBatchRepository.SaveResult result = productStore.importAll(products);
+
+        // Assert
+        assertEquals(1, result.collisions());
+        verify(barcodeStatistics).recordInserted(0, 0);
+        verify(negativeLookupCache).invalidate(testBarcode);
+        verify(productCache).evictSkus(Set.of(testSku));
+    }
+
+    @Test
+    void delete_WhenLastBarcodeOfSku_DecrementsBothCounters() {
+        // Arrange
+        when(barcodeRepository.findSkuByBarcode(testBarcode)).thenReturn(Optional.of(testSku));
+        when(barcodeRepository.countBySku(testSku)).thenReturn(0L);
+
+        // Act & Assert
+        assertEquals(Optional.of(testSku), productStore.delete(testBarcode));
+        verify(barcodeRepository).deleteById(testBarcode);
+        verify(barcodeStatistics).recordDeleted(1, 1);
+        verify(barcodeIndex).remove(testBarcode);
+    }
+
+    @Test
+    void delete_InTransaction_RecordsStatisticsOnlyAfterCommit() {
+        // Arrange
+        when(barcodeRepository.findSkuByBarcode(testBarcode)).thenReturn(Optional.of(testSku));
+        when(barcodeRepository.countBySku(testSku)).thenReturn(1L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            productStore.delete(testBarcode);
+
+            // Assert - до коммита (и при откате) счетчики и индекс не меняются
+            verifyNoInteractions(barcodeStatistics, barcodeIndex);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(barcodeStatistics).recordDeleted(1, 0);
+            verify(barcodeIndex).remove(testBarcode);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void delete_WhenBarcodeNotExists_ReturnsFalse() {
+        // Arrange
+        when(barcodeRepository.findSkuByBarcode(testBarcode)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertTrue(productStore.delete(testBarcode).isEmpty());
+        verify(barcodeRepository, never()).deleteById(anyString());
+        verifyNoInteractions(barcodeStatistics);
+    }
+}
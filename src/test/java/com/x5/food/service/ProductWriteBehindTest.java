@@ -0,0 +1,122 @@
+package com.x5.food.service;
+
+import com.x5.food.dto.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductWriteBehindTest {
+
+    @Mock
+    private ProductStore productStore;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductWriteBehind productWriteBehind;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        productWriteBehind = new ProductWriteBehind(productStore, meterRegistry);
+        ReflectionTestUtils.setField(productWriteBehind, "capacity", 10);
+        ReflectionTestUtils.setField(productWriteBehind, "batchSize", 10);
+        ReflectionTestUtils.setField(productWriteBehind, "flushInterval", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(productWriteBehind, "flushRetries", 2);
+        ReflectionTestUtils.setField(productWriteBehind, "flushRetryBackoff", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(productWriteBehind, "offerTimeout", Duration.ZERO);
+        ReflectionTestUtils.setField(productWriteBehind, "shutdownTimeout", Duration.ofSeconds(5));
+    }
+
+    @Test
+    void submit_WhenDisabled_ReturnsFalse() {
+        // Act
+        productWriteBehind.start();
+
+        // Assert
+        assertFalse(productWriteBehind.submit("111", new ProductResponse("SKU_1", "Молоко", List.of("111"))));
+        verifyNoInteractions(productStore);
+    }
+
+    @Test
+    void stop_DrainsQueuedProductsInOneBatch() throws InterruptedException {
+        // Arrange
+        ReflectionTestUtils.setField(productWriteBehind, "enabled", true);
+        productWriteBehind.start();
+        ProductResponse milk = new ProductResponse("SKU_1", "Молоко", List.of("111"));
+        ProductResponse bread = new ProductResponse("SKU_2", "Хлеб", List.of("222"));
+
+        // Act
+        assertTrue(productWriteBehind.submit("111", milk));
+        assertTrue(productWriteBehind.submit("222", bread));
+        productWriteBehind.stop();
+
+        // Assert - интервал сброса больше времени теста, запись выполнена при остановке
+        verify(productStore).saveAll(Map.of("111", milk, "222", bread));
+        assertEquals(2.0, meterRegistry.get("persistence.write-behind.written").counter().count());
+        assertFalse(productWriteBehind.submit("333", milk));
+    }
+
+    @Test
+    void flush_WhenBatchFailsTransiently_RetriesBatch() throws InterruptedException {
+        // Arrange
+        ReflectionTestUtils.setField(productWriteBehind, "enabled", true);
+        ProductResponse milk = new ProductResponse("SKU_1", "Молоко", List.of("111"));
+        doThrow(new TransientDataAccessResourceException("failover"))
+                .doNothing()
+                .when(productStore).saveAll(Map.of("111", milk));
+        productWriteBehind.start();
+
+        // Act
+        assertTrue(productWriteBehind.submit("111", milk));
+        productWriteBehind.stop();
+
+        // Assert
+        verify(productStore, times(2)).saveAll(Map.of("111", milk));
+        verify(productStore, never()).save(any(), anyString());
+        assertEquals(1.0, meterRegistry.get("persistence.write-behind.written").counter().count());
+    }
+
+    @Test
+    void flush_WhenRetriesExhausted_FallsBackToSingleRowSaves() throws InterruptedException {
+        // Arrange
+        ReflectionTestUtils.setField(productWriteBehind, "enabled", true);
+        ProductResponse milk = new ProductResponse("SKU_1", "Молоко", List.of("111"));
+        ProductResponse bread = new ProductResponse("SKU_2", "Хлеб", List.of("222"));
+        doThrow(new TransientDataAccessResourceException("timeout"))
+                .when(productStore).saveAll(anyMap());
+        doAnswer(invocation -> {
+            if (bread.equals(invocation.getArgument(0))) {
+                throw new DataIntegrityViolationException("bad row");
+            }
+            return null;
+        }).when(productStore).save(any(), anyString());
+        productWriteBehind.start();
+
+        // Act
+        assertTrue(productWriteBehind.submit("111", milk));
+        assertTrue(productWriteBehind.submit("222", bread));
+        productWriteBehind.stop();
+
+        // Assert - первая попытка и два повтора, затем по одной строке
+        verify(productStore, times(3)).saveAll(anyMap());
+        verify(productStore).save(milk, "111");
+        assertEquals(1.0, meterRegistry.get("persistence.write-behind.written").counter().count());
+        assertEquals(1.0, meterRegistry.get("persistence.write-behind.failed").counter().count());
+    }
+}
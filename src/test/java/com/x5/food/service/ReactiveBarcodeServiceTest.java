@@ -0,0 +1,160 @@
+package com.x5.food.service;
+
+import com.x5.food.cache.NegativeLookupCache;
+import com.x5.food.cache.ProductCache;
+import com.x5.food.dto.ProductResponse;
+import com.x5.food.exception.ExternalServiceUnavailableException;
+import com.x5.food.external.ExternalProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveBarcodeServiceTest {
+
+    private final String testBarcode = "1234567890";
+    private final String testSku = "SKU_567890";
+
+    @Mock
+    private ExternalProductService externalProductService;
+
+    @Mock
+    private ProductCache productCache;
+
+    @Mock
+    private NegativeLookupCache negativeLookupCache;
+
+    @Mock
+    private ProductStore productStore;
+
+    @Mock
+    private ProductWriteBehind productWriteBehind;
+
+    @Mock
+    private ProductRevalidator productRevalidator;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReactiveBarcodeService reactiveBarcodeService;
+
+    @BeforeEach
+    void setUp() {
+        reactiveBarcodeService = new ReactiveBarcodeService(externalProductService, productCache,
+                negativeLookupCache, new LookupCoalescer(meterRegistry), productStore, productWriteBehind,
+                new LookupMetrics(meterRegistry), productRevalidator, Schedulers.immediate());
+    }
+
+    @Test
+    void getProductByBarcode_WhenProductExistsExternally_PersistsAndReturnsCreated() {
+        // Arrange
+        ProductResponse product = new ProductResponse(testSku, "External Product", List.of(testBarcode));
+        when(productStore.findByBarcode(testBarcode)).thenReturn(Optional.empty());
+        when(externalProductService.getProductByBarcode(testBarcode))
+                .thenReturn(Mono.just(Optional.of(product)));
+
+        // Act & Assert
+        StepVerifier.create(reactiveBarcodeService.getProductByBarcode(testBarcode))
+                .expectNext(new BarcodeService.ResponseWithStatus(HttpStatus.CREATED, product))
+                .verifyComplete();
+
+        verify(productStore).save(product, testBarcode);
+        verify(productCache).put(testBarcode, product);
+        assertEquals(1, meterRegistry.get("barcode.lookup").tag("outcome", "external_created").timer().count());
+        assertEquals(1, meterRegistry.get("barcode.persist").tag("mode", "single").timer().count());
+    }
+
+    @Test
+    void getProductByBarcode_WhenWriteBehindAccepts_SkipsSynchronousSave() {
+        // Arrange
+        ProductResponse product = new ProductResponse(testSku, "External Product", List.of(testBarcode));
+        when(productStore.findByBarcode(testBarcode)).thenReturn(Optional.empty());
+        when(externalProductService.getProductByBarcode(testBarcode))
+                .thenReturn(Mono.just(Optional.of(product)));
+        when(productWriteBehind.submit(testBarcode, product)).thenReturn(true);
+
+        // Act & Assert
+        StepVerifier.create(reactiveBarcodeService.getProductByBarcode(testBarcode))
+                .expectNext(new BarcodeService.ResponseWithStatus(HttpStatus.CREATED, product))
+                .verifyComplete();
+
+        verify(productStore, never()).save(any(), anyString());
+        // Сброс записей SKU - после коммита отложенной записи, а не при постановке в очередь
+        verify(productCache, never()).evictSku(anyString());
+    }
+
+    @Test
+    void getProductByBarcode_WhenSameBarcodeInFlight_LoadsOnce() {
+        // Arrange
+        ProductResponse product = new ProductResponse(testSku, "External Product", List.of(testBarcode));
+        when(productStore.findByBarcode(testBarcode)).thenReturn(Optional.empty());
+        Sinks.One<Optional<ProductResponse>> upstream = Sinks.one();
+        when(externalProductService.getProductByBarcode(testBarcode)).thenReturn(upstream.asMono());
+        BarcodeService.ResponseWithStatus expected = new BarcodeService.ResponseWithStatus(HttpStatus.CREATED, product);
+
+        // Act
+        Mono<BarcodeService.ResponseWithStatus> first = reactiveBarcodeService.getProductByBarcode(testBarcode);
+        Mono<BarcodeService.ResponseWithStatus> second = reactiveBarcodeService.getProductByBarcode(testBarcode);
+
+        // Assert
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> upstream.tryEmitValue(Optional.of(product)))
+                .assertNext(results -> {
+                    assertEquals(expected, results.getT1());
+                    assertEquals(expected, results.getT2());
+                })
+                .verifyComplete();
+        verify(externalProductService, times(1)).getProductByBarcode(testBarcode);
+        assertEquals(1.0, meterRegistry.get("barcode.lookup.coalesced").counter().count());
+    }
+
+    @Test
+    void getProductByBarcode_WhenExternalUnavailable_ReturnsServiceUnavailableWithoutNegativeCaching() {
+        // Arrange
+        when(productStore.findByBarcode(testBarcode)).thenReturn(Optional.empty());
+        when(externalProductService.getProductByBarcode(testBarcode))
+                .thenReturn(Mono.error(new ExternalServiceUnavailableException("down", null)));
+
+        // Act & Assert
+        StepVerifier.create(reactiveBarcodeService.getProductByBarcode(testBarcode))
+                .expectNext(new BarcodeService.ResponseWithStatus(HttpStatus.SERVICE_UNAVAILABLE, null))
+                .verifyComplete();
+
+        verify(negativeLookupCache, never()).markMissing(anyString());
+        verify(productStore, never()).save(any(), anyString());
+        assertEquals(1, meterRegistry.get("barcode.lookup").tag("outcome", "upstream_error").timer().count());
+    }
+
+    @Test
+    void getProductByBarcode_WhenExternalUnavailableButRowExists_ServesDatabaseRow() {
+        // Arrange - индекс еще не знает строку, записанную другим экземпляром
+        ProductResponse storedProduct = new ProductResponse(testSku, "Imported Product", List.of(testBarcode));
+        when(productStore.findByBarcode(testBarcode)).thenReturn(Optional.empty());
+        when(externalProductService.getProductByBarcode(testBarcode))
+                .thenReturn(Mono.error(new ExternalServiceUnavailableException("down", null)));
+        when(productStore.recheckSkipped(testBarcode))
+                .thenReturn(Optional.of(new ProductStore.StoredProduct(storedProduct, Instant.EPOCH)));
+
+        // Act & Assert
+        StepVerifier.create(reactiveBarcodeService.getProductByBarcode(testBarcode))
+                .expectNext(new BarcodeService.ResponseWithStatus(HttpStatus.OK, storedProduct))
+                .verifyComplete();
+
+        verify(productCache).put(testBarcode, storedProduct, Instant.EPOCH);
+    }
+}